@@ -7,35 +7,87 @@ import home.parham.roadtomsc.domain.Chain;
 import home.parham.roadtomsc.domain.Link;
 import home.parham.roadtomsc.domain.Node;
 import home.parham.roadtomsc.domain.Types;
+import home.parham.roadtomsc.exact.Pipeline;
+import home.parham.roadtomsc.exact.Pool;
 import home.parham.roadtomsc.problem.Config;
 import home.parham.roadtomsc.problem.ConfigBuilder;
+import home.parham.roadtomsc.problem.Runner;
+import home.parham.roadtomsc.problem.Solution;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 public class Main {
 
     private final static Logger logger = Logger.getLogger(Main.class.getName());
 
     private static void usage() {
-        System.out.println("roadtomsc /path/to/configuration/");
+        System.out.println("roadtomsc [--export] [--aggregate] [--no-reuse] [--pipeline [--baseline] | --concurrent | --grouped | --benchmark] /path/to/configuration/");
     }
 
     public static void main(String[] args) {
-        if (args.length != 1) {
+        String path = null;
+        // export models with names into .lp files, it slows down the model building
+        boolean export = false;
+        // solve the joint model starting from the disjoint solution instead of solving them separately
+        boolean pipeline = false;
+        // solve the joint and disjoint models concurrently
+        boolean concurrent = false;
+        // use the aggregated manager to node support constraints in the joint model
+        boolean aggregate = false;
+        // solve the joint model with both forms of the manager to node support constraints
+        boolean benchmark = false;
+        // solve the joint model without a start before the pipeline to compare them
+        boolean baseline = false;
+        // build phase 2 of the disjoint model on a second CPLEX instance to compare its peak RSS
+        boolean reuse = true;
+        // solve the grouped model of the identical chains and start the joint model from its solution
+        boolean grouped = false;
+
+        for (String arg : args) {
+            if (arg.equals("--export")) {
+                export = true;
+            } else if (arg.equals("--pipeline")) {
+                pipeline = true;
+            } else if (arg.equals("--concurrent")) {
+                concurrent = true;
+            } else if (arg.equals("--aggregate")) {
+                aggregate = true;
+            } else if (arg.equals("--benchmark")) {
+                benchmark = true;
+            } else if (arg.equals("--baseline")) {
+                baseline = true;
+            } else if (arg.equals("--no-reuse")) {
+                reuse = false;
+            } else if (arg.equals("--grouped")) {
+                grouped = true;
+            } else if (path == null) {
+                path = arg;
+            } else {
+                usage();
+                return;
+            }
+        }
+
+        if (path == null) {
             usage();
             return;
         }
 
         // load user configuration
-        UserConfig config = UserConfig.load(args[0]);
+        UserConfig config = UserConfig.load(path);
 
         // build the model configuration from the loaded configuration
 
+        // VNF types catalog of this instance
+        Types catalog = new Types();
+
         ConfigBuilder builder = new ConfigBuilder()
+                .types(catalog)
                 .vnfmRam(config.getVNFM().getRam())
                 .vnfmCores(config.getVNFM().getCores())
                 .vnfmCapacity(config.getVNFM().getCapacity())
@@ -53,12 +105,14 @@ public class Main {
 
         for (int i = 0; i < config.getTopology().getNodes().size(); i++) {
             TopologyConfig.NodeConfig nodeConfig = config.getTopology().getNodes().get(i);
+            BitSet notManagerNodes = new BitSet(config.getTopology().getNodes().size());
+            nodeConfig.getNotManagerNodes().forEach(n -> notManagerNodes.set(nodes.get(n)));
             Node node = new Node(
                     nodeConfig.getID(),
                     nodeConfig.getCores(),
                     nodeConfig.getRam(),
                     nodeConfig.getVnfSupport(),
-                    new HashSet<>(nodeConfig.getNotManagerNodes().stream().map(nodes::get).collect(Collectors.toList())),
+                    notManagerNodes,
                     nodeConfig.getEgress(),
                     nodeConfig.getIngress()
             );
@@ -86,9 +140,9 @@ public class Main {
 
         // VNF types {{{
         config.getTypes().getTypes().forEach(typeConfig -> {
-            Types.add(typeConfig.getCores(), typeConfig.getRam(),typeConfig.getEgress(),
+            Types.Type type = catalog.add(typeConfig.getCores(), typeConfig.getRam(),typeConfig.getEgress(),
                     typeConfig.getIngress(), typeConfig.getManageable());
-            types.put(typeConfig.getName(), Types.len() - 1);
+            types.put(typeConfig.getName(), type.getIndex());
             logger.info(String.format("create virtual type %s [cores: %d, ram: %d, egress: %b, ingress: %b]",
                     typeConfig.getName(),
                     typeConfig.getCores(),
@@ -108,7 +162,7 @@ public class Main {
 
             for (int i = 0; i < chainConfig.getNodes().size(); i++) {
                 ChainsConfig.ChainConfig.NodeConfig n = chainConfig.getNodes().get(i);
-                chain.addNode(types.get(n.getType()));
+                chain.addNode(catalog.get(types.get(n.getType())));
                 vNodes.put(i, i);
             }
 
@@ -125,10 +179,59 @@ public class Main {
         // build configuration
         Config cfg = builder.build();
 
-        // solve using the exact method (joint)
-        new home.parham.roadtomsc.exact.joint.Solver(cfg).solve();
-        // solve using the exact method (disjoint)
-        new home.parham.roadtomsc.exact.disjoint.Solver(cfg).solve();
+        // flat arrays, hop distances and presolve are built once and shared by all methods
+        home.parham.roadtomsc.exact.Config instance = home.parham.roadtomsc.exact.Config.build(cfg);
+
+        // solve using the greedy heuristic
+        Solution heuristic = new home.parham.roadtomsc.heuristic.Solver(cfg, instance).solve();
+        System.out.println(heuristic);
+
+        // results and exported models are written into the current directory
+        Path output = Paths.get("");
+
+        // exact methods reuse CPLEX instances and they are released at the end
+        try (Pool pool = new Pool(2)) {
+            if (pipeline) {
+                new Pipeline(cfg, instance).export(export).aggregate(aggregate).baseline(baseline).output(output).pool(pool).solve();
+                return;
+            }
+
+            if (benchmark) {
+                // both forms are solved cold and report their rows, build time and solve time
+                for (boolean form : new boolean[]{false, true}) {
+                    new home.parham.roadtomsc.exact.joint.Solver(cfg, instance).aggregate(form).pool(pool).solve();
+                }
+                return;
+            }
+
+            if (grouped) {
+                // the disaggregated solution is feasible so it replaces the heuristic start when it is better
+                Solution solution = new home.parham.roadtomsc.exact.grouped.Solver(cfg, instance)
+                        .export(export).output(output).pool(pool).solve();
+                if (solution != null && solution.getCost() > heuristic.getCost()) {
+                    heuristic = solution;
+                }
+                new home.parham.roadtomsc.exact.joint.Solver(cfg, instance)
+                        .export(export).aggregate(aggregate).output(output).pool(pool).start(heuristic).solve();
+                return;
+            }
+
+            // solve using the exact method (joint) starting from the heuristic solution
+            home.parham.roadtomsc.exact.joint.Solver joint = new home.parham.roadtomsc.exact.joint.Solver(cfg, instance)
+                    .export(export).aggregate(aggregate).output(output).pool(pool).start(heuristic);
+            // solve using the exact method (disjoint)
+            home.parham.roadtomsc.exact.disjoint.Solver disjoint = new home.parham.roadtomsc.exact.disjoint.Solver(cfg, instance)
+                    .export(export).reuse(reuse).output(output).pool(pool);
+
+            if (concurrent) {
+                // each method uses half of the cores
+                int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+                new Runner().add(joint.threads(threads)).add(disjoint.threads(threads)).run();
+            } else {
+                joint.solve();
+                disjoint.solve();
+            }
+        }
 
     }
 }
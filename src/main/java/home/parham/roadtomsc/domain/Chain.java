@@ -16,8 +16,8 @@ public class Chain {
         this.cost = cost;
     }
 
-    public void addNode(int id) {
-        this.chain.add(Types.get(id));
+    public void addNode(Types.Type type) {
+        this.chain.add(type);
     }
 
     public void addLink(int bandwidth, int source, int destination) {
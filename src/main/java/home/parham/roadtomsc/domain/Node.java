@@ -1,6 +1,6 @@
 package home.parham.roadtomsc.domain;
 
-import java.util.Set;
+import java.util.BitSet;
 
 /**
  * Node represents physical node in the problem space
@@ -42,9 +42,9 @@ public class Node {
     private boolean vnfSupport;
 
     /**
-     * notManagerNodes is a set of physical nodes that can not manage this physical node
+     * notManagerNodes has a bit for each physical node that can not manage this physical node
      */
-    private Set<Integer> notManagerNodes;
+    private BitSet notManagerNodes;
 
     /**
      * egress node can support VNFs with egress types
@@ -56,7 +56,7 @@ public class Node {
      */
     private boolean ingress;
 
-    public Node(String name, int cores, int ram, boolean vnfSupport, Set<Integer> notManagerNodes, boolean egress, boolean ingress) {
+    public Node(String name, int cores, int ram, boolean vnfSupport, BitSet notManagerNodes, boolean egress, boolean ingress) {
         this.name = name;
         this.cores = cores;
         this.ram = ram;
@@ -90,7 +90,7 @@ public class Node {
     /**
      * @return the nodes that can't manage this node
      */
-    public Set<Integer> getNotManagerNodes() {
+    public BitSet getNotManagerNodes() {
         return notManagerNodes;
     }
 
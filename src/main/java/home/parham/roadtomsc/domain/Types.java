@@ -2,23 +2,34 @@ package home.parham.roadtomsc.domain;
 
 import java.util.ArrayList;
 
+/**
+ * Types is the catalog of VNF types of a problem instance, each instance has its own catalog
+ * so multiple instances can be built and solved in one process.
+ */
 public class Types {
-    static {
-        types = new ArrayList<>();
-    }
+    private final ArrayList<Type> types;
 
-    private static ArrayList<Type> types;
+    public Types() {
+        this.types = new ArrayList<>();
+    }
 
-    public static void add(int cores, int ram, boolean egress, boolean ingress, boolean manageable) {
-        types.add(new Type(types.size(), cores, ram, egress, ingress, manageable));
+    /**
+     * Adds a new type to the catalog, its index is the number of the types before it.
+     *
+     * @return the new type
+     */
+    public Type add(int cores, int ram, boolean egress, boolean ingress, boolean manageable) {
+        Type type = new Type(this.types.size(), cores, ram, egress, ingress, manageable);
+        this.types.add(type);
+        return type;
     }
 
-    public static Type get(int id) {
-        return types.get(id);
+    public Type get(int id) {
+        return this.types.get(id);
     }
 
-    public static int len() {
-        return types.size();
+    public int len() {
+        return this.types.size();
     }
 
     public static class Type {
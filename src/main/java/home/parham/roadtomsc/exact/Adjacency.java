@@ -0,0 +1,148 @@
+/*
+ * In The Name Of God
+ * ======================================
+ * [] Project Name : roadtomsc
+ *
+ * [] Package Name : home.parham.roadtomsc.exact
+ *
+ * [] Creation Date : 17-10-2026
+ *
+ * [] Created By : Parham Alvani (parham.alvani@gmail.com)
+ * =======================================
+ */
+
+package home.parham.roadtomsc.exact;
+
+import home.parham.roadtomsc.domain.Link;
+
+import java.util.List;
+
+/**
+ * Adjacency represents physical links of each physical node in compressed sparse row format.
+ * links of node _i_ are stored in [begin(i), end(i)) and for each of them
+ * there is the other end of the link, the link index and the link bandwidth.
+ */
+public class Adjacency {
+    /**
+     * links of node _i_ start from offset[i] and end before offset[i + 1]
+     */
+    private final int[] offset;
+
+    /**
+     * the other end of each link
+     */
+    private final int[] neighbor;
+
+    /**
+     * index of each link in the physical links
+     */
+    private final int[] link;
+
+    /**
+     * bandwidth of each link
+     */
+    private final int[] bandwidth;
+
+    private Adjacency(int[] offset, int[] neighbor, int[] link, int[] bandwidth) {
+        this.offset = offset;
+        this.neighbor = neighbor;
+        this.link = link;
+        this.bandwidth = bandwidth;
+    }
+
+    /**
+     * @param node index of the physical node
+     * @return position of the first link of the given node
+     */
+    public int begin(int node) {
+        return this.offset[node];
+    }
+
+    /**
+     * @param node index of the physical node
+     * @return position after the last link of the given node
+     */
+    public int end(int node) {
+        return this.offset[node + 1];
+    }
+
+    /**
+     * @param node index of the physical node
+     * @return number of links of the given node
+     */
+    public int degree(int node) {
+        return this.offset[node + 1] - this.offset[node];
+    }
+
+    /**
+     * @param position position of the link
+     * @return index of the physical node on the other end of the link
+     */
+    public int neighbor(int position) {
+        return this.neighbor[position];
+    }
+
+    /**
+     * @param position position of the link
+     * @return index of the link in the physical links
+     */
+    public int link(int position) {
+        return this.link[position];
+    }
+
+    /**
+     * @param position position of the link
+     * @return bandwidth of the link
+     */
+    public int bandwidth(int position) {
+        return this.bandwidth[position];
+    }
+
+    /**
+     * Builds adjacency of the outgoing links of each physical node
+     * @param W number of physical nodes
+     * @param links physical links
+     */
+    public static Adjacency outgoing(int W, List<Link> links) {
+        return build(W, links, true);
+    }
+
+    /**
+     * Builds adjacency of the incoming links of each physical node
+     * @param W number of physical nodes
+     * @param links physical links
+     */
+    public static Adjacency incoming(int W, List<Link> links) {
+        return build(W, links, false);
+    }
+
+    private static Adjacency build(int W, List<Link> links, boolean outgoing) {
+        int[] offset = new int[W + 1];
+        int[] neighbor = new int[links.size()];
+        int[] link = new int[links.size()];
+        int[] bandwidth = new int[links.size()];
+
+        // count links of each node
+        for (Link l : links) {
+            offset[(outgoing ? l.getSource() : l.getDestination()) + 1]++;
+        }
+        for (int i = 0; i < W; i++) {
+            offset[i + 1] += offset[i];
+        }
+
+        // fill links of each node in the order of the physical links
+        int[] next = new int[W];
+        System.arraycopy(offset, 0, next, 0, W);
+        for (int e = 0; e < links.size(); e++) {
+            Link l = links.get(e);
+            int node = outgoing ? l.getSource() : l.getDestination();
+            int position = next[node]++;
+
+            neighbor[position] = outgoing ? l.getDestination() : l.getSource();
+            link[position] = e;
+            bandwidth[position] = l.getBandwidth();
+        }
+
+        return new Adjacency(offset, neighbor, link, bandwidth);
+    }
+}
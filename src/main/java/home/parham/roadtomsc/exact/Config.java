@@ -5,8 +5,13 @@ import home.parham.roadtomsc.domain.Link;
 import home.parham.roadtomsc.domain.Node;
 import home.parham.roadtomsc.domain.Types;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Config represents problem configuration
@@ -35,11 +40,75 @@ public class Config {
      */
     private int[][] E;
 
+    /**
+     * outgoing and incoming physical links of each physical node
+     */
+    private Adjacency outgoing, incoming;
+
+    /**
+     * VNF types catalog
+     */
+    private Types types;
+
     /**
      * number of VNF types
      */
     private int F;
 
+    /**
+     * candidate hosts of each VNF type, physical node _w_ is a candidate host of type _k_ when
+     * it supports VNF placement, it supports the ingress/egress requirement of the type and
+     * it has enough cores and ram for an instance of the type.
+     */
+    private BitSet[] candidates;
+
+    /**
+     * viable[h] indicates that the _h_th chain passes the presolve checks and it may be accepted
+     */
+    private boolean[] viable;
+
+    /**
+     * viable chains with the same cost, VNF types and virtual links are in the same class,
+     * chainClass[h] is the class of the _h_th chain or -1 when it is not viable and
+     * classChains[c] are the chains of the _c_th class in order
+     */
+    private int[] chainClass;
+    private int[][] classChains;
+
+    /**
+     * forwarding[w] indicates that physical node _w_ cannot host any VNF type or VNFM so it is only
+     * used as a transit node in the routes
+     */
+    private boolean[] forwarding;
+
+    /**
+     * hop distance between each pair of physical nodes on the physical links or -1 when there is no path
+     *
+     * hops[i][j]
+     */
+    private int[][] hops;
+
+    /**
+     * hop distance of each physical node from the nearest candidate host of each VNF type or -1 when there is no path
+     *
+     * typeHops[k][w]
+     */
+    private int[][] typeHops;
+
+    /**
+     * physical nodes that cannot manage a VNF that is placed on each physical node in ascending order
+     *
+     * forbiddenManagers[w]
+     */
+    private int[][] forbiddenManagers;
+
+    /**
+     * physical nodes that have the same non-empty forbidden managers are grouped together
+     *
+     * exclusionGroups[g]
+     */
+    private int[][] exclusionGroups;
+
     /**
      * SFC requests chains
      */
@@ -60,6 +129,66 @@ public class Config {
      */
     private int U;
 
+    /**
+     * cores and ram of each VNF type
+     *
+     * typeCores[k], typeRam[k]
+     */
+    private int[] typeCores, typeRam;
+
+    /**
+     * cores and ram of each physical node
+     *
+     * nodeCores[w], nodeRam[w]
+     */
+    private int[] nodeCores, nodeRam;
+
+    /**
+     * VNFs of chain _h_ are [vnfOffset[h], vnfOffset[h + 1]) and its virtual links are
+     * [virtualLinkOffset[h], virtualLinkOffset[h + 1]) in the global indices
+     */
+    private int[] vnfOffset, virtualLinkOffset;
+
+    /**
+     * type and chain of each VNF
+     *
+     * vnfType[v], vnfChain[v]
+     */
+    private int[] vnfType, vnfChain;
+
+    /**
+     * vnfManageable[v] indicates that VNF _v_ needs a VNFM
+     */
+    private boolean[] vnfManageable;
+
+    /**
+     * number of manageable VNFs of each chain
+     */
+    private int[] manageableCount;
+
+    /**
+     * global index of the source VNF and the destination VNF, bandwidth and chain of each virtual link
+     *
+     * virtualLinkSource[uv], virtualLinkDestination[uv], virtualLinkBandwidth[uv], virtualLinkChain[uv]
+     */
+    private int[] virtualLinkSource, virtualLinkDestination, virtualLinkBandwidth, virtualLinkChain;
+
+    /**
+     * upper bound on the number of VNF instances of type _k_ on physical node _w_ from the node capacity
+     * and the number of VNFs of the type
+     *
+     * instanceBound[w][k]
+     */
+    private int[][] instanceBound;
+
+    /**
+     * upper bound on the number of VNFMs on physical node _w_ from the node capacity
+     * and the number of manageable VNFs
+     *
+     * vnfmBound[w]
+     */
+    private int[] vnfmBound;
+
     /**
      * VNFMs parameters
      */
@@ -70,11 +199,35 @@ public class Config {
             int w,
             List<Link> links,
             int[][] e,
+            Adjacency outgoing,
+            Adjacency incoming,
+            Types types,
             int f,
+            BitSet[] candidates,
+            int[][] hops,
+            int[][] typeHops,
+            int[][] forbiddenManagers,
+            int[][] exclusionGroups,
             List<Chain> chains,
             int t,
             int v,
             int u,
+            int[] typeCores,
+            int[] typeRam,
+            int[] nodeCores,
+            int[] nodeRam,
+            int[] vnfOffset,
+            int[] virtualLinkOffset,
+            int[] vnfType,
+            int[] vnfChain,
+            boolean[] vnfManageable,
+            int[] manageableCount,
+            int[] virtualLinkSource,
+            int[] virtualLinkDestination,
+            int[] virtualLinkBandwidth,
+            int[] virtualLinkChain,
+            int[][] instanceBound,
+            int[] vnfmBound,
             int vnfmRam,
             int vnfmCores,
             int vnfmCapacity,
@@ -86,11 +239,35 @@ public class Config {
         W = w;
         this.links = links;
         E = e;
+        this.outgoing = outgoing;
+        this.incoming = incoming;
+        this.types = types;
         F = f;
+        this.candidates = candidates;
+        this.hops = hops;
+        this.typeHops = typeHops;
+        this.forbiddenManagers = forbiddenManagers;
+        this.exclusionGroups = exclusionGroups;
         this.chains = chains;
         T = t;
         V = v;
         U = u;
+        this.typeCores = typeCores;
+        this.typeRam = typeRam;
+        this.nodeCores = nodeCores;
+        this.nodeRam = nodeRam;
+        this.vnfOffset = vnfOffset;
+        this.virtualLinkOffset = virtualLinkOffset;
+        this.vnfType = vnfType;
+        this.vnfChain = vnfChain;
+        this.vnfManageable = vnfManageable;
+        this.manageableCount = manageableCount;
+        this.virtualLinkSource = virtualLinkSource;
+        this.virtualLinkDestination = virtualLinkDestination;
+        this.virtualLinkBandwidth = virtualLinkBandwidth;
+        this.virtualLinkChain = virtualLinkChain;
+        this.instanceBound = instanceBound;
+        this.vnfmBound = vnfmBound;
         this.vnfmRam = vnfmRam;
         this.vnfmCores = vnfmCores;
         this.vnfmCapacity = vnfmCapacity;
@@ -115,14 +292,126 @@ public class Config {
         return E;
     }
 
+    public Adjacency getOutgoing() {
+        return outgoing;
+    }
+
+    public Adjacency getIncoming() {
+        return incoming;
+    }
+
+    public Types getTypes() {
+        return types;
+    }
+
     public int getF() {
         return F;
     }
 
+    /**
+     * @param type index of the VNF type
+     * @param node index of the physical node
+     * @return that the physical node can host instances of the given type
+     */
+    public boolean isCandidate(int type, int node) {
+        return candidates[type].get(node);
+    }
+
+    /**
+     * @param source index of the source physical node
+     * @param destination index of the destination physical node
+     * @return number of physical links on the shortest path between the given nodes or -1 when there is no path
+     */
+    public int getHops(int source, int destination) {
+        return hops[source][destination];
+    }
+
+    /**
+     * @param type index of the VNF type
+     * @param node index of the physical node
+     * @return number of physical links on the shortest path from the nearest candidate host of the type
+     * to the given node or -1 when there is no path
+     */
+    public int getTypeHops(int type, int node) {
+        return typeHops[type][node];
+    }
+
+    /**
+     * @param source index of the source physical node
+     * @param destination index of the destination physical node
+     * @return that there is a path within the VNFM radius between the given nodes
+     */
+    public boolean isWithinRadius(int source, int destination) {
+        return hops[source][destination] != -1 && hops[source][destination] <= vnfmRadius;
+    }
+
+    /**
+     * @param node index of the physical node
+     * @return physical nodes that cannot manage a VNF on the given physical node
+     */
+    public int[] getForbiddenManagers(int node) {
+        return forbiddenManagers[node];
+    }
+
+    /**
+     * @return number of physical node groups with identical forbidden managers
+     */
+    public int getExclusionGroupCount() {
+        return exclusionGroups.length;
+    }
+
+    /**
+     * @param group index of the group
+     * @return physical nodes of the group, they all have the forbidden managers of the first one
+     */
+    public int[] getExclusionGroup(int group) {
+        return exclusionGroups[group];
+    }
+
     public List<Chain> getChains() {
         return Collections.unmodifiableList(chains);
     }
 
+    /**
+     * @param h chain index
+     * @return that the chain passes the presolve checks, the models have no variable for the other chains
+     */
+    public boolean isViable(int h) {
+        return viable[h];
+    }
+
+    /**
+     * @param w index of the physical node
+     * @return that the physical node is only used for forwarding, the models have no placement variable
+     * and capacity constraint for it
+     */
+    public boolean isForwarding(int w) {
+        return forwarding[w];
+    }
+
+    /**
+     * @return number of the identical chain classes
+     */
+    public int getClassCount() {
+        return classChains.length;
+    }
+
+    /**
+     * @param c class index
+     * @return chains of the class in order, the first one represents the class
+     */
+    public int[] getClassChains(int c) {
+        return classChains[c];
+    }
+
+    /**
+     * @param h chain index
+     * @return class of the chain or -1 when the chain is not viable
+     */
+    public int getChainClass(int h) {
+        return chainClass[h];
+    }
+
     public int getT() {
         return T;
     }
@@ -135,6 +424,123 @@ public class Config {
         return U;
     }
 
+    public int getTypeCores(int k) {
+        return typeCores[k];
+    }
+
+    public int getTypeRam(int k) {
+        return typeRam[k];
+    }
+
+    public int getNodeCores(int w) {
+        return nodeCores[w];
+    }
+
+    public int getNodeRam(int w) {
+        return nodeRam[w];
+    }
+
+    /**
+     * @param h chain index
+     * @return global index of the first VNF of the chain, the chain _T_ offset is _V_
+     */
+    public int getVnfOffset(int h) {
+        return vnfOffset[h];
+    }
+
+    /**
+     * @param h chain index
+     * @return global index of the first virtual link of the chain, the chain _T_ offset is _U_
+     */
+    public int getVirtualLinkOffset(int h) {
+        return virtualLinkOffset[h];
+    }
+
+    public int getVnfType(int v) {
+        return vnfType[v];
+    }
+
+    public int getVnfChain(int v) {
+        return vnfChain[v];
+    }
+
+    public boolean isVnfManageable(int v) {
+        return vnfManageable[v];
+    }
+
+    /**
+     * @param h chain index
+     * @return number of manageable VNFs of the chain
+     */
+    public int getManageableCount(int h) {
+        return manageableCount[h];
+    }
+
+    public int getVirtualLinkSource(int uv) {
+        return virtualLinkSource[uv];
+    }
+
+    public int getVirtualLinkDestination(int uv) {
+        return virtualLinkDestination[uv];
+    }
+
+    public int getVirtualLinkBandwidth(int uv) {
+        return virtualLinkBandwidth[uv];
+    }
+
+    public int getVirtualLinkChain(int uv) {
+        return virtualLinkChain[uv];
+    }
+
+    /**
+     * @param w index of the physical node
+     * @param k index of the VNF type
+     * @return upper bound on the number of instances of the type on the physical node
+     */
+    public int getInstanceBound(int w, int k) {
+        return instanceBound[w][k];
+    }
+
+    /**
+     * @param w index of the physical node
+     * @return upper bound on the number of VNFMs on the physical node
+     */
+    public int getVnfmBound(int w) {
+        return vnfmBound[w];
+    }
+
+    /**
+     * @param cores available cores
+     * @param ram available ram
+     * @param unitCores cores of each unit
+     * @param unitRam ram of each unit
+     * @param limit number of units that are needed at most
+     * @return the number of units that fit into the available resources and are not more than the limit
+     */
+    public static int bound(int cores, int ram, int unitCores, int unitRam, int limit) {
+        int bound = Math.max(limit, 0);
+        if (unitCores > 0) {
+            bound = Math.min(bound, Math.max(cores, 0) / unitCores);
+        }
+        if (unitRam > 0) {
+            bound = Math.min(bound, Math.max(ram, 0) / unitRam);
+        }
+        return bound;
+    }
+
+    /**
+     * @param managed number of manageable VNFs
+     * @param capacity number of VNFs that each VNFM manages
+     * @return the number of VNFMs that manage the VNFs, zero when VNFMs have no capacity
+     * so there is no VNFM and no manageable VNF can be managed
+     */
+    public static int vnfms(int managed, int capacity) {
+        if (capacity <= 0) {
+            return 0;
+        }
+        return (Math.max(managed, 0) + capacity - 1) / capacity;
+    }
+
     public int getVnfmRam() {
         return vnfmRam;
     }
@@ -190,7 +596,76 @@ public class Config {
         }
 
         // VNF types
-        int F = Types.len();
+        Types types = cfg.getTypes();
+        int F = types.len();
+
+        // candidate hosts of VNF types
+        BitSet[] candidates = new BitSet[F];
+        for (int i = 0; i < F; i++) {
+            candidates[i] = new BitSet(W);
+            for (int j = 0; j < W; j++) {
+                Node node = cfg.getNodes().get(j);
+                if (!node.isVnfSupport()) {
+                    continue;
+                }
+                if (types.get(i).isEgress() && !node.isEgress()) {
+                    continue;
+                }
+                if (types.get(i).isIngress() && !node.isIngress()) {
+                    continue;
+                }
+                if (types.get(i).getCores() > node.getCores() || types.get(i).getRam() > node.getRam()) {
+                    continue;
+                }
+                candidates[i].set(j);
+            }
+        }
+
+        // hop distances with a breadth first search from each physical node
+        Adjacency outgoing = Adjacency.outgoing(W, cfg.getLinks());
+        int[][] hops = new int[W][W];
+        int[] queue = new int[W];
+        for (int i = 0; i < W; i++) {
+            Arrays.fill(hops[i], -1);
+            hops[i][i] = 0;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = i;
+            while (head < tail) {
+                int n = queue[head++];
+                for (int p = outgoing.begin(n); p < outgoing.end(n); p++) {
+                    if (hops[i][outgoing.neighbor(p)] == -1) {
+                        hops[i][outgoing.neighbor(p)] = hops[i][n] + 1;
+                        queue[tail++] = outgoing.neighbor(p);
+                    }
+                }
+            }
+        }
+        int[][] typeHops = new int[F][W];
+        for (int k = 0; k < F; k++) {
+            Arrays.fill(typeHops[k], -1);
+            for (int j = candidates[k].nextSetBit(0); j >= 0; j = candidates[k].nextSetBit(j + 1)) {
+                for (int i = 0; i < W; i++) {
+                    if (hops[j][i] != -1 && (typeHops[k][i] == -1 || hops[j][i] < typeHops[k][i])) {
+                        typeHops[k][i] = hops[j][i];
+                    }
+                }
+            }
+        }
+
+        // forbidden managers of physical nodes
+        int[][] forbiddenManagers = new int[W][];
+        for (int i = 0; i < W; i++) {
+            forbiddenManagers[i] = cfg.getNodes().get(i).getNotManagerNodes().stream().toArray();
+        }
+        Map<BitSet, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < W; i++) {
+            if (forbiddenManagers[i].length > 0) {
+                groups.computeIfAbsent(cfg.getNodes().get(i).getNotManagerNodes(), k -> new ArrayList<>()).add(i);
+            }
+        }
+        int[][] exclusionGroups = groups.values().stream()
+                .map(g -> g.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new);
 
         // SFC requests
         int T = cfg.getChains().size();
@@ -203,16 +678,109 @@ public class Config {
             U += chain.links();
         }
 
-        return new Config(
+        // VNF types and physical nodes resources
+        int[] typeCores = new int[F];
+        int[] typeRam = new int[F];
+        for (int i = 0; i < F; i++) {
+            typeCores[i] = types.get(i).getCores();
+            typeRam[i] = types.get(i).getRam();
+        }
+        int[] nodeCores = new int[W];
+        int[] nodeRam = new int[W];
+        for (int i = 0; i < W; i++) {
+            nodeCores[i] = cfg.getNodes().get(i).getCores();
+            nodeRam[i] = cfg.getNodes().get(i).getRam();
+        }
+
+        // VNFs and virtual links in the global indices
+        int[] vnfOffset = new int[T + 1];
+        int[] virtualLinkOffset = new int[T + 1];
+        int[] vnfType = new int[V];
+        int[] vnfChain = new int[V];
+        boolean[] vnfManageable = new boolean[V];
+        int[] manageableCount = new int[T];
+        int[] virtualLinkSource = new int[U];
+        int[] virtualLinkDestination = new int[U];
+        int[] virtualLinkBandwidth = new int[U];
+        int[] virtualLinkChain = new int[U];
+        for (int h = 0; h < T; h++) {
+            Chain chain = cfg.getChains().get(h);
+            int v = vnfOffset[h];
+            int u = virtualLinkOffset[h];
+
+            for (int k = 0; k < chain.nodes(); k++) {
+                vnfType[v + k] = chain.getNode(k).getIndex();
+                vnfChain[v + k] = h;
+                vnfManageable[v + k] = chain.getNode(k).isManageable();
+                if (vnfManageable[v + k]) {
+                    manageableCount[h]++;
+                }
+            }
+            for (int k = 0; k < chain.links(); k++) {
+                virtualLinkSource[u + k] = v + chain.getLink(k).getSource();
+                virtualLinkDestination[u + k] = v + chain.getLink(k).getDestination();
+                virtualLinkBandwidth[u + k] = chain.getLink(k).getBandwidth();
+                virtualLinkChain[u + k] = h;
+            }
+
+            vnfOffset[h + 1] = v + chain.nodes();
+            virtualLinkOffset[h + 1] = u + chain.links();
+        }
+
+        // variable bounds from the capacities, each VNF uses one instance of its type and
+        // each VNFM manages vnfmCapacity VNFs
+        int[] typeCount = new int[F];
+        int manageable = 0;
+        for (int v = 0; v < V; v++) {
+            typeCount[vnfType[v]]++;
+            if (vnfManageable[v]) {
+                manageable++;
+            }
+        }
+        int[][] instanceBound = new int[W][F];
+        int[] vnfmBound = new int[W];
+        for (int i = 0; i < W; i++) {
+            for (int k = 0; k < F; k++) {
+                instanceBound[i][k] = bound(nodeCores[i], nodeRam[i], typeCores[k], typeRam[k], typeCount[k]);
+            }
+            vnfmBound[i] = bound(nodeCores[i], nodeRam[i], cfg.getVnfmCores(), cfg.getVnfmRam(),
+                    vnfms(manageable, cfg.getVnfmCapacity()));
+        }
+
+        Config config = new Config(
                 cfg.getNodes(),
                 W,
                 cfg.getLinks(),
                 E,
+                outgoing,
+                Adjacency.incoming(W, cfg.getLinks()),
+                types,
                 F,
+                candidates,
+                hops,
+                typeHops,
+                forbiddenManagers,
+                exclusionGroups,
                 cfg.getChains(),
                 T,
                 V,
                 U,
+                typeCores,
+                typeRam,
+                nodeCores,
+                nodeRam,
+                vnfOffset,
+                virtualLinkOffset,
+                vnfType,
+                vnfChain,
+                vnfManageable,
+                manageableCount,
+                virtualLinkSource,
+                virtualLinkDestination,
+                virtualLinkBandwidth,
+                virtualLinkChain,
+                instanceBound,
+                vnfmBound,
                 cfg.getVnfmRam(),
                 cfg.getVnfmCores(),
                 cfg.getVnfmCapacity(),
@@ -220,5 +788,39 @@ public class Config {
                 cfg.getVnfmBandwidth(),
                 cfg.getVnfmLicenseFee()
         );
+
+        // presolve runs on the flat arrays of the configuration
+        config.forwarding = Presolve.forwarding(config);
+        config.viable = Presolve.viable(config);
+
+        // identical viable chains are grouped by their cost, types and virtual links
+        Map<String, List<Integer>> classes = new LinkedHashMap<>();
+        config.chainClass = new int[T];
+        for (int h = 0; h < T; h++) {
+            config.chainClass[h] = -1;
+            if (!config.viable[h]) {
+                continue;
+            }
+            StringBuilder signature = new StringBuilder().append(cfg.getChains().get(h).getCost()).append('|');
+            for (int v = vnfOffset[h]; v < vnfOffset[h + 1]; v++) {
+                signature.append(vnfType[v]).append(',');
+            }
+            signature.append('|');
+            for (int uv = virtualLinkOffset[h]; uv < virtualLinkOffset[h + 1]; uv++) {
+                signature.append(virtualLinkSource[uv] - vnfOffset[h]).append('-')
+                        .append(virtualLinkDestination[uv] - vnfOffset[h]).append(':')
+                        .append(virtualLinkBandwidth[uv]).append(',');
+            }
+            classes.computeIfAbsent(signature.toString(), k -> new ArrayList<>()).add(h);
+        }
+        config.classChains = classes.values().stream()
+                .map(c -> c.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new);
+        for (int c = 0; c < config.classChains.length; c++) {
+            for (int h : config.classChains[c]) {
+                config.chainClass[h] = c;
+            }
+        }
+
+        return config;
     }
 }
@@ -0,0 +1,58 @@
+/*
+ * In The Name Of God
+ * ======================================
+ * [] Project Name : roadtomsc
+ *
+ * [] Package Name : home.parham.roadtomsc.exact
+ *
+ * [] Creation Date : 17-10-2026
+ *
+ * [] Created By : Parham Alvani (parham.alvani@gmail.com)
+ * =======================================
+ */
+
+package home.parham.roadtomsc.exact;
+
+import ilog.concert.IloException;
+import ilog.cplex.IloCplex;
+
+/**
+ * Environment owns a CPLEX instance and its native memory. it must be used in try-with-resources
+ * so the native memory is released (or the instance is returned to its pool) after each solve.
+ */
+public class Environment implements AutoCloseable {
+    /**
+     * cplex is the owned CPLEX instance.
+     */
+    private final IloCplex cplex;
+
+    /**
+     * pool that the instance is returned to on close or null when the instance is ended on close.
+     */
+    private final Pool pool;
+
+    Environment(IloCplex cplex, Pool pool) {
+        this.cplex = cplex;
+        this.pool = pool;
+    }
+
+    /**
+     * Creates an environment that is not pooled and ends its CPLEX instance on close.
+     */
+    public static Environment open() throws IloException {
+        return new Environment(new IloCplex(), null);
+    }
+
+    public IloCplex getCplex() {
+        return cplex;
+    }
+
+    @Override
+    public void close() {
+        if (this.pool != null) {
+            this.pool.release(this.cplex);
+        } else {
+            this.cplex.end();
+        }
+    }
+}
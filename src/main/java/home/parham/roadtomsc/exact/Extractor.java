@@ -0,0 +1,127 @@
+/*
+ * In The Name Of God
+ * ======================================
+ * [] Project Name : roadtomsc
+ *
+ * [] Package Name : home.parham.roadtomsc.exact
+ *
+ * [] Creation Date : 17-10-2026
+ *
+ * [] Created By : Parham Alvani (parham.alvani@gmail.com)
+ * =======================================
+ */
+
+package home.parham.roadtomsc.exact;
+
+import ilog.concert.IloException;
+import ilog.concert.IloIntVar;
+import ilog.concert.IloNumVar;
+import ilog.cplex.IloCplex;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Extractor reads the values of a variable family from the solver with a single getValues call
+ * instead of calling getValue (a JNI round trip) for each variable.
+ * variables that are not created (null entries) have zero value.
+ */
+public class Extractor {
+    private final static Logger logger = Logger.getLogger(Extractor.class.getName());
+
+    private Extractor() {
+    }
+
+    /**
+     * @param cplex solved CPLEX instance
+     * @param vars variable family
+     * @return value of each variable in the family
+     */
+    public static double[] values(IloCplex cplex, IloIntVar[] vars) throws IloException {
+        return values(cplex, new IloIntVar[][]{vars})[0];
+    }
+
+    /**
+     * @param cplex solved CPLEX instance
+     * @param vars variable family
+     * @return value of each variable in the family
+     */
+    public static double[][] values(IloCplex cplex, IloIntVar[][] vars) throws IloException {
+        int n = 0;
+        for (IloIntVar[] row : vars) {
+            for (IloIntVar var : row) {
+                if (var != null) {
+                    n++;
+                }
+            }
+        }
+
+        IloNumVar[] flat = new IloNumVar[n];
+        n = 0;
+        for (IloIntVar[] row : vars) {
+            for (IloIntVar var : row) {
+                if (var != null) {
+                    flat[n++] = var;
+                }
+            }
+        }
+
+        double[] flatValues = n > 0 ? cplex.getValues(flat) : new double[0];
+
+        double[][] values = new double[vars.length][];
+        n = 0;
+        for (int i = 0; i < vars.length; i++) {
+            values[i] = new double[vars[i].length];
+            for (int j = 0; j < vars[i].length; j++) {
+                if (vars[i][j] != null) {
+                    values[i][j] = flatValues[n++];
+                }
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Reads a route from the values of a routing variable family (tau or tauHat) that is indexed by physical links.
+     * the route follows the used links from the source, links that are not on it (detached cycles that
+     * the flow conservation allows) are dropped.
+     *
+     * @param values values of the routing variable family
+     * @param column virtual link or VNF node that the route belongs to
+     * @param outgoing outgoing links of the physical nodes
+     * @param source physical node that the route starts from
+     * @return links of the route in order
+     */
+    public static int[] route(double[][] values, int column, Adjacency outgoing, int source) {
+        int n = 0;
+        boolean[] used = new boolean[values.length];
+        for (int e = 0; e < values.length; e++) {
+            if (values[e][column] > 0.5) {
+                used[e] = true;
+                n++;
+            }
+        }
+
+        int[] route = new int[n];
+        n = 0;
+        for (int i = source, next = 0; next != -1; ) {
+            next = -1;
+            for (int p = outgoing.begin(i); p < outgoing.end(i) && next == -1; p++) {
+                if (used[outgoing.link(p)]) {
+                    next = p;
+                }
+            }
+            if (next != -1) {
+                used[outgoing.link(next)] = false;
+                route[n++] = outgoing.link(next);
+                i = outgoing.neighbor(next);
+            }
+        }
+        if (n < route.length) {
+            logger.fine(String.format("%d detached links of column %d are dropped from its route", route.length - n, column));
+        }
+
+        return Arrays.copyOf(route, n);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * In The Name Of God
+ * ======================================
+ * [] Project Name : roadtomsc
+ *
+ * [] Package Name : home.parham.roadtomsc.exact
+ *
+ * [] Creation Date : 17-10-2026
+ *
+ * [] Created By : Parham Alvani (parham.alvani@gmail.com)
+ * =======================================
+ */
+
+package home.parham.roadtomsc.exact;
+
+import home.parham.roadtomsc.problem.Method;
+import home.parham.roadtomsc.problem.Solution;
+
+import java.nio.file.Path;
+
+/**
+ * Pipeline solves the problem with the disjoint method and then uses its solution as a warm start
+ * and search hints for the joint method, so the joint method starts from a feasible solution.
+ * it can also solve the joint method cold before that as the baseline, so the time to the first incumbent
+ * and to the target gap of both solves are reported on the same problem and the baseline writes its own result.
+ */
+public class Pipeline implements Method {
+    private final home.parham.roadtomsc.exact.disjoint.Solver disjoint;
+
+    private final home.parham.roadtomsc.exact.joint.Solver joint;
+
+    /**
+     * cold solves the joint method without a start
+     */
+    private final home.parham.roadtomsc.exact.joint.Solver cold;
+
+    /**
+     * baseline indicates that the joint method is also solved without the disjoint solution
+     */
+    private boolean baseline;
+
+    public Pipeline(home.parham.roadtomsc.problem.Config cfg) {
+        this(cfg, Config.build(cfg));
+    }
+
+    /**
+     * @param problem problem configuration
+     * @param cfg configuration instance that is built from the problem configuration and shared by both methods
+     */
+    public Pipeline(home.parham.roadtomsc.problem.Config problem, Config cfg) {
+        this.disjoint = new home.parham.roadtomsc.exact.disjoint.Solver(problem, cfg);
+        this.joint = new home.parham.roadtomsc.exact.joint.Solver(problem, cfg);
+        this.cold = new home.parham.roadtomsc.exact.joint.Solver(problem, cfg).name("joint-baseline");
+    }
+
+    /**
+     * @param export builds the models with names and exports them into .lp files
+     */
+    public Pipeline export(boolean export) {
+        this.disjoint.export(export);
+        this.joint.export(export);
+        this.cold.export(export);
+        return this;
+    }
+
+    /**
+     * @param pool pool that provides the CPLEX instances
+     */
+    public Pipeline pool(Pool pool) {
+        this.disjoint.pool(pool);
+        this.joint.pool(pool);
+        this.cold.pool(pool);
+        return this;
+    }
+
+    /**
+     * @param output directory that the result files and the exported models are written into
+     */
+    public Pipeline output(Path output) {
+        this.disjoint.output(output);
+        this.joint.output(output);
+        this.cold.output(output);
+        return this;
+    }
+
+    /**
+     * @param aggregate uses the aggregated manager to node support constraints in the joint model
+     */
+    public Pipeline aggregate(boolean aggregate) {
+        this.joint.aggregate(aggregate);
+        this.cold.aggregate(aggregate);
+        return this;
+    }
+
+    /**
+     * @param baseline solves the joint method without a start before the warm started solve
+     */
+    public Pipeline baseline(boolean baseline) {
+        this.baseline = baseline;
+        return this;
+    }
+
+    /**
+     * @param threads number of threads that CPLEX uses, zero lets CPLEX decide
+     */
+    public Pipeline threads(int threads) {
+        this.disjoint.threads(threads);
+        this.joint.threads(threads);
+        this.cold.threads(threads);
+        return this;
+    }
+
+    @Override
+    public Solution solve() {
+        Solution baseline = null;
+        if (this.baseline) {
+            System.out.println("Joint method without start (baseline)");
+            baseline = this.cold.solve();
+        }
+
+        Solution seed = this.disjoint.solve();
+        if (seed == null) {
+            // joint method is solved cold when the disjoint method fails, the baseline is that solve
+            System.err.println("Disjoint method failed, joint method is solved without start");
+            return this.baseline ? baseline : this.cold.solve();
+        }
+
+        System.out.println("Joint method with disjoint start");
+        Solution solution = this.joint.start(seed).hint(true).solve();
+        if (this.baseline) {
+            System.out.printf("Joint method cost without start %s and with disjoint start %s\n",
+                    baseline != null ? baseline.getCost() : "-", solution != null ? solution.getCost() : "-");
+        }
+        return solution;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * In The Name Of God
+ * ======================================
+ * [] Project Name : roadtomsc
+ *
+ * [] Package Name : home.parham.roadtomsc.exact
+ *
+ * [] Creation Date : 17-10-2026
+ *
+ * [] Created By : Parham Alvani (parham.alvani@gmail.com)
+ * =======================================
+ */
+
+package home.parham.roadtomsc.exact;
+
+import ilog.concert.IloException;
+import ilog.cplex.IloCplex;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Pool keeps idle CPLEX instances and reuses them across solves, so repeated solves do not pay
+ * for the environment initialization and the native memory stays flat.
+ * models, callbacks and parameters are cleared before an instance is reused.
+ */
+public class Pool implements AutoCloseable {
+    /**
+     * maximum number of idle instances, extra instances are ended on release.
+     */
+    private final int capacity;
+
+    /**
+     * idle instances
+     */
+    private final Deque<IloCplex> idle;
+
+    /**
+     * @param capacity maximum number of idle instances
+     */
+    public Pool(int capacity) {
+        this.capacity = capacity;
+        this.idle = new ArrayDeque<>();
+    }
+
+    /**
+     * @return environment with an idle instance or a new one when there is no idle instance
+     */
+    public synchronized Environment acquire() throws IloException {
+        IloCplex cplex = this.idle.poll();
+        if (cplex == null) {
+            cplex = new IloCplex();
+        }
+        return new Environment(cplex, this);
+    }
+
+    synchronized void release(IloCplex cplex) {
+        if (this.idle.size() >= this.capacity) {
+            cplex.end();
+            return;
+        }
+
+        try {
+            cplex.clearModel();
+            cplex.clearCallbacks();
+            cplex.setDefaults();
+        } catch (IloException e) {
+            // instance is in an unknown state so it cannot be reused
+            cplex.end();
+            return;
+        }
+        this.idle.push(cplex);
+    }
+
+    /**
+     * Ends all the idle instances.
+     */
+    @Override
+    public synchronized void close() {
+        while (!this.idle.isEmpty()) {
+            this.idle.pop().end();
+        }
+    }
+}
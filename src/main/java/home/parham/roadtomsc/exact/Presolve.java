@@ -0,0 +1,142 @@
+/*
+ * In The Name Of God
+ * ======================================
+ * [] Project Name : roadtomsc
+ *
+ * [] Package Name : home.parham.roadtomsc.exact
+ *
+ * [] Creation Date : 17-10-2026
+ *
+ * [] Created By : Parham Alvani (parham.alvani@gmail.com)
+ * =======================================
+ */
+
+package home.parham.roadtomsc.exact;
+
+import java.util.BitSet;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Presolve finds the chains that cannot be accepted in any solution with cheap checks on the configuration,
+ * the models do not create variables and constraints for them and their indices remain the same.
+ * a chain cannot be accepted when one of its VNFs has no candidate host, its total cores or ram is more than
+ * the capacity of the candidate hosts of its types, there is no manager within the VNFM radius
+ * of the candidate hosts of its manageable VNFs or the probe cannot embed it alone on the empty network.
+ * chains are checked in parallel on the common fork-join pool.
+ */
+public class Presolve {
+    private final static Logger logger = Logger.getLogger(Presolve.class.getName());
+
+    private Presolve() {
+    }
+
+    /**
+     * @param cfg configuration instance
+     * @return forwarding[w] indicates that the _w_th physical node cannot host any VNF type or VNFM
+     */
+    public static boolean[] forwarding(Config cfg) {
+        boolean[] forwarding = new boolean[cfg.getW()];
+        int count = 0;
+        for (int w = 0; w < cfg.getW(); w++) {
+            forwarding[w] = cfg.getVnfmBound(w) == 0;
+            for (int k = 0; k < cfg.getF() && forwarding[w]; k++) {
+                forwarding[w] = !cfg.isCandidate(k, w);
+            }
+            if (forwarding[w]) {
+                count++;
+            }
+        }
+        logger.info(String.format("%d physical nodes are only used for forwarding", count));
+        return forwarding;
+    }
+
+    /**
+     * @param cfg configuration instance
+     * @return viable[h] indicates that the _h_th chain may be accepted
+     */
+    public static boolean[] viable(Config cfg) {
+        Probe probe = new Probe(cfg);
+
+        String[] reasons = new String[cfg.getT()];
+        IntStream.range(0, cfg.getT()).parallel().forEach(h -> {
+            reasons[h] = reason(cfg, h);
+            if (reasons[h] == null) {
+                reasons[h] = probe.probe(h);
+            }
+        });
+
+        boolean[] viable = new boolean[cfg.getT()];
+        for (int h = 0; h < cfg.getT(); h++) {
+            String reason = reasons[h];
+            viable[h] = reason == null;
+            if (reason != null) {
+                logger.info(String.format("chain %d is dropped: %s", h, reason));
+            }
+        }
+        return viable;
+    }
+
+    /**
+     * @return the reason that the _h_th chain cannot be accepted or null when it may be accepted
+     */
+    private static String reason(Config cfg, int h) {
+        // candidate hosts of the chain types
+        BitSet hosts = new BitSet(cfg.getW());
+        int cores = 0;
+        int ram = 0;
+        for (int v = cfg.getVnfOffset(h); v < cfg.getVnfOffset(h + 1); v++) {
+            int type = cfg.getVnfType(v);
+
+            boolean placeable = false;
+            for (int w = 0; w < cfg.getW(); w++) {
+                if (cfg.isCandidate(type, w)) {
+                    hosts.set(w);
+                    placeable = true;
+                }
+            }
+            if (!placeable) {
+                return String.format("VNF %d with type %d has no candidate host", v - cfg.getVnfOffset(h), type);
+            }
+
+            cores += cfg.getTypeCores(type);
+            ram += cfg.getTypeRam(type);
+        }
+
+        int availableCores = 0;
+        int availableRam = 0;
+        for (int w = hosts.nextSetBit(0); w >= 0; w = hosts.nextSetBit(w + 1)) {
+            availableCores += cfg.getNodeCores(w);
+            availableRam += cfg.getNodeRam(w);
+        }
+        if (cores > availableCores) {
+            return String.format("it needs %d cores but its candidate hosts have %d", cores, availableCores);
+        }
+        if (ram > availableRam) {
+            return String.format("it needs %d GB of ram but its candidate hosts have %d", ram, availableRam);
+        }
+
+        if (cfg.getManageableCount(h) == 0) {
+            return null;
+        }
+        if (cfg.getVnfmCapacity() <= 0) {
+            return "it has manageable VNFs but VNFMs have no capacity";
+        }
+        for (int n = 0; n < cfg.getW(); n++) {
+            if (cfg.getVnfmBound(n) == 0) {
+                continue;
+            }
+            boolean reachable = true;
+            for (int v = cfg.getVnfOffset(h); v < cfg.getVnfOffset(h + 1) && reachable; v++) {
+                if (cfg.isVnfManageable(v)) {
+                    int hops = cfg.getTypeHops(cfg.getVnfType(v), n);
+                    reachable = hops != -1 && hops <= cfg.getVnfmRadius();
+                }
+            }
+            if (reachable) {
+                return null;
+            }
+        }
+        return String.format("there is no manager within %d hops of its manageable VNFs", cfg.getVnfmRadius());
+    }
+}
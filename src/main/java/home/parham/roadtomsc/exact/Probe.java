@@ -0,0 +1,205 @@
+/*
+ * In The Name Of God
+ * ======================================
+ * [] Project Name : roadtomsc
+ *
+ * [] Package Name : home.parham.roadtomsc.exact
+ *
+ * [] Creation Date : 17-10-2026
+ *
+ * [] Created By : Parham Alvani (parham.alvani@gmail.com)
+ * =======================================
+ */
+
+package home.parham.roadtomsc.exact;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Probe checks that each chain can be embedded alone on the empty physical network.
+ * the hosts of the VNFs and the manager are narrowed with arc consistency: a host remains when each virtual link
+ * of the VNF can be routed from/to a remaining host of its other end on the links with enough bandwidth and
+ * a remaining manager is within the VNFM radius of it, the managers remain in the same way.
+ * a chain is not embeddable when it has no host for a VNF or no manager. the check never drops an embeddable
+ * chain but it may keep a chain that is not embeddable.
+ * probes are thread safe and their results are cached by the chain signature (types and virtual links)
+ * so identical chains are probed once.
+ */
+public class Probe {
+    private final Config cfg;
+
+    /**
+     * hop distances on the physical links that have at least the given bandwidth
+     */
+    private final Map<Integer, int[][]> hops = new ConcurrentHashMap<>();
+
+    /**
+     * probe result of each chain signature, empty when the chain is embeddable
+     */
+    private final Map<String, String> cache = new ConcurrentHashMap<>();
+
+    public Probe(Config cfg) {
+        this.cfg = cfg;
+    }
+
+    /**
+     * @param h chain index
+     * @return the reason that the chain cannot be embedded alone or null when it may be embedded
+     */
+    public String probe(int h) {
+        // probe runs outside of the map because a long mapping function blocks the other keys of its bin,
+        // identical chains that are probed at the same time may both run it and the first result is kept
+        String signature = this.signature(h);
+        String reason = this.cache.get(signature);
+        if (reason == null) {
+            String r = this.reason(h);
+            reason = r == null ? "" : r;
+            String cached = this.cache.putIfAbsent(signature, reason);
+            if (cached != null) {
+                reason = cached;
+            }
+        }
+        return reason.isEmpty() ? null : reason;
+    }
+
+    private String signature(int h) {
+        StringBuilder signature = new StringBuilder();
+        for (int v = this.cfg.getVnfOffset(h); v < this.cfg.getVnfOffset(h + 1); v++) {
+            signature.append(this.cfg.getVnfType(v)).append(',');
+        }
+        signature.append('|');
+        for (int uv = this.cfg.getVirtualLinkOffset(h); uv < this.cfg.getVirtualLinkOffset(h + 1); uv++) {
+            signature.append(this.cfg.getVirtualLinkSource(uv) - this.cfg.getVnfOffset(h)).append('-')
+                    .append(this.cfg.getVirtualLinkDestination(uv) - this.cfg.getVnfOffset(h)).append(':')
+                    .append(this.cfg.getVirtualLinkBandwidth(uv)).append(',');
+        }
+        return signature.toString();
+    }
+
+    private String reason(int h) {
+        int offset = this.cfg.getVnfOffset(h);
+        int n = this.cfg.getVnfOffset(h + 1) - offset;
+
+        // candidate hosts of each VNF and candidate managers of the chain
+        BitSet[] hosts = new BitSet[n];
+        for (int k = 0; k < n; k++) {
+            hosts[k] = new BitSet(this.cfg.getW());
+            for (int w = 0; w < this.cfg.getW(); w++) {
+                if (this.cfg.isCandidate(this.cfg.getVnfType(offset + k), w)) {
+                    hosts[k].set(w);
+                }
+            }
+        }
+        BitSet managers = new BitSet(this.cfg.getW());
+        for (int w = 0; w < this.cfg.getW(); w++) {
+            if (this.cfg.getVnfmBound(w) > 0) {
+                managers.set(w);
+            }
+        }
+
+        int[][] management = this.hops(this.cfg.getVnfmBandwidth());
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            for (int uv = this.cfg.getVirtualLinkOffset(h); uv < this.cfg.getVirtualLinkOffset(h + 1); uv++) {
+                int[][] distance = this.hops(this.cfg.getVirtualLinkBandwidth(uv));
+                int s = this.cfg.getVirtualLinkSource(uv) - offset;
+                int d = this.cfg.getVirtualLinkDestination(uv) - offset;
+
+                changed |= revise(hosts[s], hosts[d], (a, b) -> distance[a][b] != -1);
+                changed |= revise(hosts[d], hosts[s], (b, a) -> distance[a][b] != -1);
+            }
+
+            for (int k = 0; k < n; k++) {
+                if (!this.cfg.isVnfManageable(offset + k)) {
+                    continue;
+                }
+                changed |= revise(hosts[k], managers, (a, m) -> this.manages(management, a, m));
+                changed |= revise(managers, hosts[k], (m, a) -> this.manages(management, a, m));
+            }
+
+            for (int k = 0; k < n; k++) {
+                if (hosts[k].isEmpty()) {
+                    return String.format("VNF %d cannot be connected to its neighbours or a manager alone", k);
+                }
+            }
+            if (this.cfg.getManageableCount(h) > 0 && managers.isEmpty()) {
+                return String.format("there is no manager within %d hops of its VNFs on the links " +
+                        "with enough bandwidth", this.cfg.getVnfmRadius());
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return that physical node _m_ can manage a VNF on physical node _a_ within the VNFM radius
+     */
+    private boolean manages(int[][] distance, int a, int m) {
+        return distance[a][m] != -1 && distance[a][m] <= this.cfg.getVnfmRadius()
+                && Arrays.binarySearch(this.cfg.getForbiddenManagers(a), m) < 0;
+    }
+
+    private interface Support {
+        boolean test(int value, int other);
+    }
+
+    /**
+     * Removes the values of the domain that have no support in the other domain.
+     *
+     * @return that the domain is changed
+     */
+    private static boolean revise(BitSet domain, BitSet other, Support support) {
+        boolean changed = false;
+        for (int a = domain.nextSetBit(0); a >= 0; a = domain.nextSetBit(a + 1)) {
+            boolean supported = false;
+            for (int b = other.nextSetBit(0); b >= 0 && !supported; b = other.nextSetBit(b + 1)) {
+                supported = support.test(a, b);
+            }
+            if (!supported) {
+                domain.clear(a);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return hop distances between physical nodes on the links that have at least the given bandwidth
+     */
+    private int[][] hops(int bandwidth) {
+        int[][] cached = this.hops.get(bandwidth);
+        if (cached != null) {
+            return cached;
+        }
+
+        // distances are computed outside of the map in the same way as the probe results
+        int W = this.cfg.getW();
+        Adjacency outgoing = this.cfg.getOutgoing();
+        int[][] hops = new int[W][W];
+        int[] queue = new int[W];
+        for (int i = 0; i < W; i++) {
+            Arrays.fill(hops[i], -1);
+            hops[i][i] = 0;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = i;
+            while (head < tail) {
+                int n = queue[head++];
+                for (int p = outgoing.begin(n); p < outgoing.end(n); p++) {
+                    if (outgoing.bandwidth(p) >= bandwidth && hops[i][outgoing.neighbor(p)] == -1) {
+                        hops[i][outgoing.neighbor(p)] = hops[i][n] + 1;
+                        queue[tail++] = outgoing.neighbor(p);
+                    }
+                }
+            }
+        }
+        cached = this.hops.putIfAbsent(bandwidth, hops);
+        return cached != null ? cached : hops;
+    }
+}
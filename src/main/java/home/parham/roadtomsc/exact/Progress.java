@@ -0,0 +1,73 @@
+/*
+ * In The Name Of God
+ * ======================================
+ * [] Project Name : roadtomsc
+ *
+ * [] Package Name : home.parham.roadtomsc.exact
+ *
+ * [] Creation Date : 17-10-2026
+ *
+ * [] Created By : Parham Alvani (parham.alvani@gmail.com)
+ * =======================================
+ */
+
+package home.parham.roadtomsc.exact;
+
+import ilog.concert.IloException;
+import ilog.cplex.IloCplex;
+
+/**
+ * Progress records when CPLEX finds its first incumbent and when the MIP gap reaches the target gap,
+ * solvers use it to compare cold and warm started solves.
+ */
+public class Progress extends IloCplex.MIPInfoCallback {
+    /**
+     * target relative MIP gap
+     */
+    private final double gap;
+
+    /**
+     * seconds from the start of the solve to the first incumbent or -1 when there is no incumbent yet
+     */
+    private double firstIncumbent = -1;
+
+    /**
+     * seconds from the start of the solve to reaching the target gap or -1 when it is not reached yet
+     */
+    private double targetGap = -1;
+
+    /**
+     * @param gap target relative MIP gap
+     */
+    public Progress(double gap) {
+        this.gap = gap;
+    }
+
+    @Override
+    protected void main() throws IloException {
+        if (!this.hasIncumbent()) {
+            return;
+        }
+
+        double elapsed = this.getCplexTime() - this.getStartTime();
+        if (this.firstIncumbent == -1) {
+            this.firstIncumbent = elapsed;
+        }
+        if (this.targetGap == -1 && this.getMIPRelativeGap() <= this.gap) {
+            this.targetGap = elapsed;
+        }
+    }
+
+    public double getFirstIncumbent() {
+        return firstIncumbent;
+    }
+
+    public double getTargetGap() {
+        return targetGap;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("first incumbent after %.2f s, %.0f%% gap after %.2f s", this.firstIncumbent, this.gap * 100, this.targetGap);
+    }
+}
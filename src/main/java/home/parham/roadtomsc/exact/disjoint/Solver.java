@@ -13,10 +13,17 @@
 
 package home.parham.roadtomsc.exact.disjoint;
 
+import home.parham.roadtomsc.domain.Chain;
 import home.parham.roadtomsc.domain.Link;
 import home.parham.roadtomsc.exact.Config;
+import home.parham.roadtomsc.exact.Environment;
+import home.parham.roadtomsc.exact.Extractor;
+import home.parham.roadtomsc.exact.Pool;
+import home.parham.roadtomsc.exact.Progress;
+import home.parham.roadtomsc.exact.Usage;
 import home.parham.roadtomsc.exact.disjoint.model.Phase2;
 import home.parham.roadtomsc.exact.disjoint.model.Phase1;
+import home.parham.roadtomsc.exact.disjoint.model.Snapshot;
 import home.parham.roadtomsc.problem.Method;
 import home.parham.roadtomsc.problem.Solution;
 import ilog.concert.IloException;
@@ -24,70 +31,209 @@ import ilog.cplex.IloCplex;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 
 public class Solver implements Method {
     private Config cfg;
 
+    /**
+     * problem configuration that the solutions refer to
+     */
+    private home.parham.roadtomsc.problem.Config problem;
+
+    /**
+     * export indicates that the models are built with names and exported into .lp files of the output directory
+     */
+    private boolean export;
+
+    /**
+     * pool provides the CPLEX instances
+     */
+    private Pool pool;
+
+    /**
+     * output is the directory that the result file and the exported models are written into,
+     * nothing is written when it is null
+     */
+    private Path output;
+
+    /**
+     * threads is the number of threads that CPLEX uses, zero lets CPLEX decide
+     */
+    private int threads;
+
+    /**
+     * reuse indicates that phase 2 is built on the phase 1 CPLEX instance after its model is cleared,
+     * otherwise phase 2 is built on a second instance and phase 1 model stays alive until the end.
+     */
+    private boolean reuse = true;
+
     public Solver(home.parham.roadtomsc.problem.Config cfg) {
-        this.cfg = Config.build(cfg);
+        this(cfg, Config.build(cfg));
+    }
+
+    /**
+     * @param problem problem configuration
+     * @param cfg configuration instance that is built from the problem configuration, it is shared between solvers
+     *            so presolve runs once for each problem
+     */
+    public Solver(home.parham.roadtomsc.problem.Config problem, Config cfg) {
+        this.problem = problem;
+        this.cfg = cfg;
+    }
+
+    /**
+     * @param export builds the models with names and exports them into .lp files
+     */
+    public Solver export(boolean export) {
+        this.export = export;
+        return this;
+    }
+
+    /**
+     * @param pool pool that provides the CPLEX instances, without it each solve creates and ends its own instance
+     */
+    public Solver pool(Pool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * @param output directory that the result file and the exported models are written into
+     */
+    public Solver output(Path output) {
+        this.output = output;
+        return this;
+    }
+
+    /**
+     * @param threads number of threads that CPLEX uses, zero lets CPLEX decide
+     */
+    public Solver threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @param reuse builds phase 2 on the phase 1 CPLEX instance, without it phase 1 model is kept
+     *              on its own instance that is only useful to compare the peak RSS of both modes
+     */
+    public Solver reuse(boolean reuse) {
+        this.reuse = reuse;
+        return this;
+    }
+
+    private Environment environment() throws IloException {
+        if (this.pool != null) {
+            return this.pool.acquire();
+        }
+        return Environment.open();
     }
 
     @Override
     public Solution solve() {
-        // create and setup the result file
-        PrintWriter writer;
-        try {
-            writer = new PrintWriter(Files.newBufferedWriter(Paths.get("disjoint-result.txt")));
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
-        }
+        // result is buffered and written into the output directory at the end
+        StringWriter result = new StringWriter();
+        PrintWriter writer = new PrintWriter(result);
+
+        Solution solution = null;
+        // spare is null when both phases are built on the same CPLEX instance
+        try (Environment env = this.environment(); Environment spare = this.reuse ? null : this.environment()) {
+            // with reuse there is only one native model at a time
+            IloCplex cplex = env.getCplex();
+            if (this.threads > 0) {
+                cplex.setParam(IloCplex.Param.Threads, this.threads);
+            }
 
-        try {
-            IloCplex phase1Cplex = new IloCplex();
-            Phase1 phase1 = new Phase1(phase1Cplex, cfg);
+            Instant built = Instant.now();
+            Phase1 phase1 = new Phase1(cplex, cfg, this.export);
             phase1.variables().objective().constraints();
+            System.out.printf("Phase 1 built in %s with %d rows and %d columns (peak heap %d MB, peak RSS %d MB)\n",
+                    Duration.between(built, Instant.now()), cplex.getNrows(), cplex.getNcols(), Usage.peakHeap(), Usage.peakRss());
+
+            if (this.export && this.output != null) {
+                cplex.exportModel(this.output.resolve("phase-1.lp").toString());
+            }
+            cplex.setParam(IloCplex.Param.MIP.Tolerances.MIPGap, 0.05); // 5% MIP Gap
+
+            Progress progress = new Progress(0.05);
+            cplex.use(progress);
 
-            phase1Cplex.exportModel("phase-1.lp");
-            phase1Cplex.setParam(IloCplex.Param.MIP.Tolerances.MIPGap, 0.05); // 5% MIP Gap
-            if (!phase1Cplex.solve()) {
+            Instant started = Instant.now();
+            if (!cplex.solve()) {
+                System.err.printf("Phase 1 solve failed: %s\n", cplex.getStatus());
                 return null;
             }
+            System.out.printf("Phase 1 solved in %s with %d nodes explored (%s)\n",
+                    Duration.between(started, Instant.now()), cplex.getNnodes(), progress);
 
-            IloCplex phase2Cplex = new IloCplex();
-            Phase2 phase2 = new Phase2(phase2Cplex, cfg);
-            phase2.variables(phase1.getX(), phase1.getY(), phase1.getZ(), phase1.getTau(), phase1Cplex).objective().constraints();
+            Instant transferred = Instant.now();
+            Snapshot snapshot = phase1.snapshot(cplex);
+            System.out.printf("Phase 1 solution transferred in %s\n", Duration.between(transferred, Instant.now()));
 
-            phase2Cplex.exportModel("phase-2.lp");
+            if (spare == null) {
+                // phase 1 model is not required anymore, its solution is in the snapshot
+                cplex.clearModel();
+            } else {
+                // phase 1 model stays on its instance next to phase 2 model
+                cplex = spare.getCplex();
+                if (this.threads > 0) {
+                    cplex.setParam(IloCplex.Param.Threads, this.threads);
+                }
+            }
+
+            built = Instant.now();
+            Phase2 phase2 = new Phase2(cplex, cfg, this.export);
+            phase2.variables(snapshot).objective().constraints();
+            System.out.printf("Phase 2 (%s) built in %s with %d rows and %d columns (peak heap %d MB, peak RSS %d MB)\n",
+                    spare == null ? "reused" : "separate", Duration.between(built, Instant.now()),
+                    cplex.getNrows(), cplex.getNcols(), Usage.peakHeap(), Usage.peakRss());
+
+            if (this.export && this.output != null) {
+                cplex.exportModel(this.output.resolve("phase-2.lp").toString());
+            }
+
+            cplex.setParam(IloCplex.Param.MIP.Tolerances.MIPGap, 0.05); // 5% MIP Gap
 
-            phase2Cplex.setParam(IloCplex.Param.MIP.Tolerances.MIPGap, 0.05); // 5% MIP Gap
+            // phase 1 callback is still attached when its instance is reused
+            progress = new Progress(0.05);
+            cplex.clearCallbacks();
+            cplex.use(progress);
 
             Instant now = Instant.now();
-            boolean solved = phase2Cplex.solve();
-            System.out.printf("Problem solved in %s\n", Duration.between(now, Instant.now()));
+            boolean solved = cplex.solve();
+            System.out.printf("Problem solved in %s with %d nodes explored (peak RSS %d MB, %s)\n",
+                    Duration.between(now, Instant.now()), cplex.getNnodes(), Usage.peakRss(), progress);
 
             if (solved) {
+                // read each variable family with a single call
+                // placement and routing of the accepted chains come from phase 1
+                double[] x = Extractor.values(cplex, phase2.getX());
+                double[] yHat = Extractor.values(cplex, phase2.getyHat());
+                double[][] zHat = Extractor.values(cplex, phase2.getzHat());
+                double[][] tauHat = Extractor.values(cplex, phase2.getTauHat());
+
                 writer.println();
-                writer.println(" Solution Status = " + phase2Cplex.getStatus());
+                writer.println(" Solution Status = " + cplex.getStatus());
                 writer.println();
 
                 writer.println();
-                writer.println(" gap = " + phase2Cplex.getMIPRelativeGap());
+                writer.println(" gap = " + cplex.getMIPRelativeGap());
                 writer.println();
 
                 writer.println();
-                writer.println(" cost = " + phase2Cplex.getObjValue());
+                writer.println(" cost = " + cplex.getObjValue());
                 writer.println();
 
                 int acceptedChains = 0;
                 writer.println();
                 writer.println(" >> Chains");
                 for (int i = 0; i < cfg.getT(); i++) {
-                    if (phase2Cplex.getValue(phase2.getX()[i]) == 1) {
+                    if (x[i] > 0.5) {
                         writer.printf("Chain %s is accepted.\n", i);
                         acceptedChains++;
                     } else {
@@ -103,7 +249,7 @@ public class Solver implements Method {
                 writer.println();
                 int usedVNFMs = 0;
                 for (int i = 0; i < this.cfg.getW(); i++) {
-                    usedVNFMs += phase2Cplex.getValue(phase2.getyHat()[i]);
+                    usedVNFMs += Math.round(yHat[i]);
                 }
                 writer.printf("%d VNFMs is used", usedVNFMs);
                 writer.println();
@@ -113,14 +259,10 @@ public class Solver implements Method {
                 int v = 0;
                 for (int h = 0; h < cfg.getT(); h++) {
                     writer.printf("Chain %d:\n", h);
-                    for (int k = 0; k < cfg.getChains().get(h).nodes(); k++) {
-                        for (int i = 0; i < cfg.getF(); i++) {
-                            for (int j = 0; j < cfg.getW(); j++) {
-                                if (phase2Cplex.getValue(phase2.getZ()[i][j][k + v]) == 1) {
-                                    writer.printf("Node %d with type %d is mapped on %s\n", k, i, cfg.getNodes().get(j).getName());
-                                }
-                            }
-                        }
+                    for (int k = 0; k < cfg.getChains().get(h).nodes() && x[h] > 0.5; k++) {
+                        int i = cfg.getChains().get(h).getNode(k).getIndex();
+                        int j = snapshot.getHost(k + v);
+                        writer.printf("Node %d with type %d is mapped on %s\n", k, i, cfg.getNodes().get(j).getName());
                     }
                     v += cfg.getChains().get(h).nodes();
                 }
@@ -130,7 +272,7 @@ public class Solver implements Method {
                 writer.println(" >> Manager mapping");
                 for (int h = 0; h < cfg.getT(); h++) {
                     for (int i = 0; i < cfg.getW(); i++) {
-                        if (phase2Cplex.getValue(phase2.getzHat()[h][i]) == 1) {
+                        if (zHat[h][i] > 0.5) {
                             writer.printf("Chain %d manager is %s\n", h, cfg.getNodes().get(i).getName());
                         }
                     }
@@ -140,8 +282,8 @@ public class Solver implements Method {
                 writer.println();
                 writer.println(" >> Manager instances");
                 for (int i = 0; i < cfg.getW(); i++) {
-                    writer.printf("%s has %f manager instances\n",
-                            cfg.getNodes().get(i).getName(), phase2Cplex.getValue(phase2.getyHat()[i]));
+                    writer.printf("%s has %d manager instances\n",
+                            cfg.getNodes().get(i).getName(), Math.round(yHat[i]));
                 }
                 writer.println();
 
@@ -150,26 +292,33 @@ public class Solver implements Method {
                 int u = 0;
                 v = 0;
                 for (int h = 0; h < cfg.getT(); h++) {
-                    for (int i = 0; i < cfg.getW(); i++) {
-                        for (int j = 0; j < cfg.getW(); j++) {
-                            if (cfg.getE()[i][j] > 0) {
-
-                                for (int k = 0; k < cfg.getChains().get(h).links(); k++) {
-                                    if (phase2Cplex.getValue(phase2.getTau()[i][j][u + k]) == 1) {
-                                        Link l = cfg.getChains().get(h).getLink(k);
-                                        writer.printf("Chain %d link %d (%d - %d) is on %s - %s\n", h, k,
-                                                l.getSource(), l.getDestination(),
-                                                cfg.getNodes().get(i).getName(), cfg.getNodes().get(j).getName());
-                                    }
-                                }
-
-                                for (int k = 0; k < cfg.getChains().get(h).nodes(); k++) {
-                                    if (phase2Cplex.getValue(phase2.getTauHat()[i][j][v + k]) == 1) {
-                                        writer.printf("Chain %d node %d manager is on %s - %s\n", h, k,
-                                                cfg.getNodes().get(i).getName(), cfg.getNodes().get(j).getName());
-                                    }
-                                }
+                    for (int e = 0; e < cfg.getLinks().size() && x[h] > 0.5; e++) {
+                        // skips the links that are not used by the chain at all
+                        boolean used = false;
+                        for (int k = 0; k < cfg.getChains().get(h).links() && !used; k++) {
+                            used = snapshot.isRouted(u + k, e);
+                        }
+                        for (int k = 0; k < cfg.getChains().get(h).nodes() && !used; k++) {
+                            used = tauHat[e][v + k] > 0.5;
+                        }
+                        if (!used) {
+                            continue;
+                        }
+
+                        String source = cfg.getNodes().get(cfg.getLinks().get(e).getSource()).getName();
+                        String destination = cfg.getNodes().get(cfg.getLinks().get(e).getDestination()).getName();
 
+                        for (int k = 0; k < cfg.getChains().get(h).links(); k++) {
+                            if (snapshot.isRouted(u + k, e)) {
+                                Link l = cfg.getChains().get(h).getLink(k);
+                                writer.printf("Chain %d link %d (%d - %d) is on %s - %s\n", h, k,
+                                        l.getSource(), l.getDestination(), source, destination);
+                            }
+                        }
+
+                        for (int k = 0; k < cfg.getChains().get(h).nodes(); k++) {
+                            if (tauHat[e][v + k] > 0.5) {
+                                writer.printf("Chain %d node %d manager is on %s - %s\n", h, k, source, destination);
                             }
                         }
                     }
@@ -177,18 +326,56 @@ public class Solver implements Method {
                     v += cfg.getChains().get(h).nodes();
                 }
                 writer.println();
+
+                // placement and routes of the accepted chains as indices
+                int[] hosts = new int[cfg.getV()];
+                int[] managers = new int[cfg.getT()];
+                int[][] routes = new int[cfg.getU()][];
+                int[][] managementRoutes = new int[cfg.getV()][];
+                u = 0;
+                v = 0;
+                for (int h = 0; h < cfg.getT(); h++) {
+                    Chain chain = cfg.getChains().get(h);
+                    managers[h] = -1;
+                    for (int i = 0; i < cfg.getW() && x[h] > 0.5; i++) {
+                        if (zHat[h][i] > 0.5) {
+                            managers[h] = i;
+                        }
+                    }
+                    for (int k = 0; k < chain.nodes(); k++) {
+                        hosts[v + k] = x[h] > 0.5 ? snapshot.getHost(v + k) : -1;
+                        if (hosts[v + k] != -1 && chain.getNode(k).isManageable()) {
+                            managementRoutes[v + k] = Extractor.route(tauHat, v + k, cfg.getOutgoing(), hosts[v + k]);
+                        }
+                    }
+                    for (int k = 0; k < chain.links(); k++) {
+                        routes[u + k] = x[h] > 0.5 ? snapshot.getRoute(u + k) : new int[0];
+                    }
+                    u += chain.links();
+                    v += chain.nodes();
+                }
+                solution = new Solution(this.problem, (int) Math.round(cplex.getObjValue()),
+                        hosts, managers, routes, managementRoutes, usedVNFMs);
            } else {
-                System.err.printf("Solve failed: %s\n", phase2Cplex.getStatus());
+                System.err.printf("Solve failed: %s\n", cplex.getStatus());
             }
         } catch (IloException e) {
             e.printStackTrace();
             return null;
         }
 
-        // close the result file
         writer.flush();
         writer.close();
 
-        return null;
+        // write the result file
+        if (this.output != null) {
+            try {
+                Files.write(this.output.resolve("disjoint-result.txt"), result.toString().getBytes());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        return solution;
     }
 }
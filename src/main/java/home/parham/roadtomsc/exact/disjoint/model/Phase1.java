@@ -1,9 +1,9 @@
 package home.parham.roadtomsc.exact.disjoint.model;
 
-import home.parham.roadtomsc.domain.Chain;
-import home.parham.roadtomsc.domain.Types;
 import home.parham.roadtomsc.exact.Config;
+import home.parham.roadtomsc.exact.Extractor;
 import ilog.concert.*;
+import ilog.cplex.IloCplex;
 
 /**
  * Model creates variables, objective and constraints of mathematical
@@ -20,6 +20,13 @@ public class Phase1 {
      */
     private final Config cfg;
 
+    /**
+     * names indicates that variables and constraints have names. names are only
+     * required for exporting the model and formatting them takes a lot of time and memory
+     * on large instances so they are disabled by default.
+     */
+    private final boolean names;
+
     /**
      * binary variable assuming the value 1 if the _h_th SFC request is accepted;
      * otherwise its value is zero.
@@ -32,6 +39,7 @@ public class Phase1 {
 
     /**
      * the number of VNF instances of type _k_ that are used in server _w_.
+     * it is null when server _w_ is not a candidate host of type _k_.
      *
      * y[w][k]
      * .lp format: y (physical node, type)
@@ -39,22 +47,25 @@ public class Phase1 {
     private IloIntVar[][] y;
 
     /**
-     * binary variable assuming the value 1 if the VNF node _v_ is served by the VNF instance of type
-     * _k_ in the server _w_.
+     * binary variable assuming the value 1 if the VNF node _v_ is served by the VNF instance of its type
+     * in the server _w_. VNF node _v_ can only be served by an instance of its own type so there is
+     * no variable for the other types. it is null when server _w_ is not a candidate host of the type.
      *
-     * z[k][w][v]
+     * z[w][v]
      * .lp format: z (type, physical node, chain number _ node number in the chain)
      */
-    private IloIntVar[][][] z;
+    private IloIntVar[][] z;
 
     /**
      * binary variable assuming the value 1 if the virtual link _(u, v)_ is routed on
-     * the physical network link from _i_ to _j_.
+     * the physical network link _e_ (from _i_ to _j_).
+     * these variables are indexed by physical links so there is no variable for
+     * node pairs without a physical link between them.
      *
-     * tau[i][j][uv]
+     * tau[e][uv]
      * .lp format: tau (physical link source, physical link destination, chain number _ link number in the chain)
      */
-    private IloIntVar[][][] tau;
+    private IloIntVar[][] tau;
 
     /**
      *
@@ -62,8 +73,31 @@ public class Phase1 {
      * @param pCfg configuration instance
      */
     public Phase1(final IloModeler pModeler, final Config pCfg) {
+        this(pModeler, pCfg, false);
+    }
+
+    /**
+     *
+     * @param pModeler CPLEX modeler instance
+     * @param pCfg configuration instance
+     * @param pNames creates variables and constraints with names
+     */
+    public Phase1(final IloModeler pModeler, final Config pCfg, final boolean pNames) {
         this.modeler = pModeler;
         this.cfg = pCfg;
+        this.names = pNames;
+    }
+
+    /**
+     * Formats name of a variable or a constraint when names are enabled.
+     *
+     * @return name or null that lets CPLEX use its default name
+     */
+    private String name(String format, Object... args) {
+        if (!this.names) {
+            return null;
+        }
+        return String.format(format, args);
     }
 
     /**
@@ -83,73 +117,55 @@ public class Phase1 {
 
     private void xVariable() throws IloException {
         // x
-        String[] xNames = new String[this.cfg.getT()];
+        this.x = new IloIntVar[this.cfg.getT()];
         for (int i = 0; i < this.cfg.getT(); i++) {
-            xNames[i] = String.format("x(%d)", i);
+            // chains that are dropped by the presolve have no variable
+            if (this.cfg.isViable(i)) {
+                this.x[i] = this.modeler.boolVar(name("x(%d)", i));
+            }
         }
-        this.x = this.modeler.boolVarArray(this.cfg.getT(), xNames);
     }
 
     private void yVariable() throws IloException {
         // y
-        String[][] yNames = new String[this.cfg.getW()][this.cfg.getF()];
-        for (int i = 0; i < this.cfg.getW(); i++) {
-            for (int j = 0; j < this.cfg.getF(); j++) {
-                yNames[i][j] = String.format("y(%d,%d)", i, j);
-            }
-        }
         this.y = new IloIntVar[this.cfg.getW()][this.cfg.getF()];
         for (int i = 0; i < this.cfg.getW(); i++) {
             for (int j = 0; j < this.cfg.getF(); j++) {
-                this.y[i][j] = this.modeler.intVar(0, Integer.MAX_VALUE, yNames[i][j]);
+                // there is no instance of type _j_ on physical node _i_ if it is not a candidate host of the type
+                if (this.cfg.isCandidate(j, i)) {
+                    this.y[i][j] = this.modeler.intVar(0, this.cfg.getInstanceBound(i, j), name("y(%d,%d)", i, j));
+                }
             }
         }
     }
 
     private void zVariable() throws IloException {
         // z
-        String[][][] zNames = new String[this.cfg.getF()][this.cfg.getW()][this.cfg.getV()];
-        for (int i = 0; i < this.cfg.getF(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                int v = 0;
-                for (int h = 0; h < this.cfg.getT(); h++) {
-                    for (int k = 0; k < this.cfg.getChains().get(h).nodes(); k++) {
-                        zNames[i][j][k + v] = String.format("z(%d,%d,%d_%d)", i, j, h, k);
-                    }
-                    v += this.cfg.getChains().get(h).nodes();
-                }
-            }
-        }
-        this.z = new IloIntVar[this.cfg.getF()][this.cfg.getW()][this.cfg.getV()];
-        for (int i = 0; i < this.cfg.getF(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                for (int k = 0; k < this.cfg.getV(); k++) {
-                    this.z[i][j][k] = modeler.boolVar(zNames[i][j][k]);
+        this.z = new IloIntVar[this.cfg.getW()][this.cfg.getV()];
+        for (int j = 0; j < this.cfg.getW(); j++) {
+            for (int v = 0; v < this.cfg.getV(); v++) {
+                int i = this.cfg.getVnfType(v);
+                int h = this.cfg.getVnfChain(v);
+                if (this.cfg.isCandidate(i, j) && this.cfg.isViable(h)) {
+                    this.z[j][v] = modeler.boolVar(name("z(%d,%d,%d_%d)", i, j, h, v - this.cfg.getVnfOffset(h)));
                 }
             }
         }
     }
 
     private void tauVariable() throws IloException {
-        // tau, tauHat
-        String[][][] tauNames = new String[this.cfg.getW()][this.cfg.getW()][this.cfg.getU()];
-        for (int i = 0; i < this.cfg.getW(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                int u = 0;
-                for (int h = 0; h < this.cfg.getT(); h++) {
-                    for (int k = 0; k < this.cfg.getChains().get(h).links(); k++) {
-                        tauNames[i][j][u + k] = String.format("tau(%d,%d,%d_%d)", i, j, h, k);
-                    }
-                    u += this.cfg.getChains().get(h).links();
-                }
-            }
-        }
-        this.tau = new IloIntVar[this.cfg.getW()][this.cfg.getW()][this.cfg.getU()];
-        for (int i = 0; i < this.cfg.getW(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                for (int k = 0; k < this.cfg.getU(); k++) {
-                    this.tau[i][j][k] = modeler.boolVar(tauNames[i][j][k]);
+        // tau
+        this.tau = new IloIntVar[this.cfg.getLinks().size()][this.cfg.getU()];
+        for (int e = 0; e < this.cfg.getLinks().size(); e++) {
+            int i = this.cfg.getLinks().get(e).getSource();
+            int j = this.cfg.getLinks().get(e).getDestination();
+
+            for (int uv = 0; uv < this.cfg.getU(); uv++) {
+                int h = this.cfg.getVirtualLinkChain(uv);
+                if (!this.cfg.isViable(h)) {
+                    continue;
                 }
+                this.tau[e][uv] = modeler.boolVar(name("tau(%d,%d,%d_%d)", i, j, h, uv - this.cfg.getVirtualLinkOffset(h)));
             }
         }
     }
@@ -162,7 +178,9 @@ public class Phase1 {
     public Phase1 objective() throws IloException {
         IloLinearNumExpr expr = this.modeler.linearNumExpr();
         for (int i = 0; i < this.cfg.getT(); i++) {
-            expr.addTerm(this.cfg.getChains().get(i).getCost(), this.x[i]);
+            if (this.x[i] != null) {
+                expr.addTerm(this.cfg.getChains().get(i).getCost(), this.x[i]);
+            }
         }
         this.modeler.addMaximize(expr);
 
@@ -178,12 +196,13 @@ public class Phase1 {
         this.nodeMemoryCPUConstraint();
         this.servicePlaceConstraint();
         this.serviceTypeConstraint();
-        this.vnfSupportConstraint();
 
         this.flowConservation();
 
-        this.egressConstraint();
-        this.ingressConstraint();
+        /*
+        egress, ingress and vnf support constraints were replaced by the candidate hosts of each type,
+        there is no y/z variable for a physical node that is not a candidate host of the type.
+        */
 
         this.linkBandwidthConstraint();
 
@@ -196,18 +215,39 @@ public class Phase1 {
      */
     private void nodeMemoryCPUConstraint() throws IloException {
         for (int i = 0; i < this.cfg.getW(); i++) {
+            if (this.cfg.isForwarding(i)) {
+                continue;
+            }
+
             IloLinearNumExpr ramConstraint = this.modeler.linearNumExpr();
             IloLinearNumExpr cpuConstraint = this.modeler.linearNumExpr();
+            // instances that need no resource (ingress/egress) are left out so the constraints
+            // of zero capacity nodes are empty and they are not added
+            boolean ram = false;
+            boolean cpu = false;
 
             for (int j = 0; j < this.cfg.getF(); j++) {
-                ramConstraint.addTerm(Types.get(j).getRam(), this.y[i][j]); // instance ram
-                cpuConstraint.addTerm(Types.get(j).getCores(), this.y[i][j]); // instance cpu
+                if (this.y[i][j] == null) {
+                    continue;
+                }
+                if (this.cfg.getTypeRam(j) > 0) {
+                    ramConstraint.addTerm(this.cfg.getTypeRam(j), this.y[i][j]); // instance ram
+                    ram = true;
+                }
+                if (this.cfg.getTypeCores(j) > 0) {
+                    cpuConstraint.addTerm(this.cfg.getTypeCores(j), this.y[i][j]); // instance cpu
+                    cpu = true;
+                }
             }
 
-            this.modeler.addLe(cpuConstraint, this.cfg.getNodes().get(i).getCores(),
-                    String.format("node_cpu_constraint_node{%d}", i));
-            this.modeler.addLe(ramConstraint, this.cfg.getNodes().get(i).getRam(),
-                    String.format("node_memory_constraint_node{%d}", i));
+            if (cpu) {
+                this.modeler.addLe(cpuConstraint, this.cfg.getNodeCores(i),
+                        name("node_cpu_constraint_node{%d}", i));
+            }
+            if (ram) {
+                this.modeler.addLe(ramConstraint, this.cfg.getNodeRam(i),
+                        name("node_memory_constraint_node{%d}", i));
+            }
         }
     }
 
@@ -216,184 +256,156 @@ public class Phase1 {
      * @throws IloException
      */
     private void servicePlaceConstraint() throws IloException {
-        for (int i = 0; i < this.cfg.getF(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                IloLinearIntExpr constraint = this.modeler.linearIntExpr();
-
-                for (int k = 0; k < this.cfg.getV(); k++) {
-                    constraint.addTerm(1, this.z[i][j][k]);
-                }
+        for (int j = 0; j < this.cfg.getW(); j++) {
+            if (this.cfg.isForwarding(j)) {
+                continue;
+            }
 
-                this.modeler.addLe(constraint, this.y[j][i], String.format("service_place_constraint_type{%d}_node{%d}", i, j));
+            IloLinearIntExpr[] constraints = new IloLinearIntExpr[this.cfg.getF()];
+            for (int i = 0; i < this.cfg.getF(); i++) {
+                constraints[i] = this.modeler.linearIntExpr();
             }
-        }
-    }
 
-    /**
-     * Service Constraint + Type constraint
-     * @throws IloException
-     */
-    private void serviceTypeConstraint() throws IloException {
-        int v = 0;
-        for (int h = 0; h < this.cfg.getT(); h++) {
-            for (int k = 0; k < this.cfg.getChains().get(h).nodes(); k++) {
-                IloLinearIntExpr constraint = this.modeler.linearIntExpr();
-
-                for (int i = 0; i < this.cfg.getF(); i++) {
-                    for (int j = 0; j < this.cfg.getW(); j++) {
-                        // adds z variable into service constraint if type of z is equal to type of node v
-                        if (this.cfg.getChains().get(h).getNode(k).getIndex() == i) {
-                            constraint.addTerm(1, this.z[i][j][k + v]);
-                        }
-                    }
+            // VNF node _v_ only uses the instances of its own type
+            for (int v = 0; v < this.cfg.getV(); v++) {
+                if (this.z[j][v] != null) {
+                    constraints[this.cfg.getVnfType(v)].addTerm(1, this.z[j][v]);
                 }
+            }
 
-                // if chain `h` is serviced then all of its nodes should be serviced
-                this.modeler.addEq(constraint, this.x[h], String.format("service_constraint_chain{%d}_vnf{%d}", h, k));
+            for (int i = 0; i < this.cfg.getF(); i++) {
+                // physical node _j_ cannot serve type _i_ at all
+                if (this.y[j][i] == null) {
+                    continue;
+                }
+                this.modeler.addLe(constraints[i], this.y[j][i], name("service_place_constraint_type{%d}_node{%d}", i, j));
             }
-            v += this.cfg.getChains().get(h).nodes();
         }
     }
 
     /**
-     * make all physical node that does not have egress support to have zero instance with egress type
+     * Service Constraint + Type constraint
      * @throws IloException
      */
-    private void egressConstraint() throws IloException {
-        for (int i = 0; i < this.cfg.getF(); i++) {
-            if (!Types.get(i).isEgress()) { // do the following only for egress types
+    private void serviceTypeConstraint() throws IloException {
+        for (int v = 0; v < this.cfg.getV(); v++) {
+            int h = this.cfg.getVnfChain(v);
+            if (this.x[h] == null) {
                 continue;
             }
+            IloLinearIntExpr constraint = this.modeler.linearIntExpr();
+
             for (int j = 0; j < this.cfg.getW(); j++) {
-                // physical node without have egress support must have zero instance with egress type
-                if (!this.cfg.getNodes().get(j).isEgress()) {
-                    physicalNodeWithoutTypeConstraint(i, j, "egress");
+                if (this.z[j][v] != null) {
+                    constraint.addTerm(1, this.z[j][v]);
                 }
             }
+
+            // if chain `h` is serviced then all of its nodes should be serviced
+            this.modeler.addEq(constraint, this.x[h], name("service_constraint_chain{%d}_vnf{%d}", h, v - this.cfg.getVnfOffset(h)));
         }
     }
 
     /**
-     * make all physical node that does not have ingress support to have zero instance with ingress type
+     * Flow conservation
      * @throws IloException
      */
-    private void ingressConstraint() throws IloException {
-        for (int i = 0; i < this.cfg.getF(); i++) {
-            if (!Types.get(i).isIngress()) { // do the following only for ingress types
+    private void flowConservation() throws IloException {
+        // linkConstraint == nodeConstraint
+        for (int uv = 0; uv < this.cfg.getU(); uv++) { // Virtual link
+            if (this.x[this.cfg.getVirtualLinkChain(uv)] == null) {
                 continue;
             }
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                // physical node without have ingress support must have zero instance with ingress type
-                if (!this.cfg.getNodes().get(j).isIngress()) {
-                    physicalNodeWithoutTypeConstraint(i, j, "ingress");
-                }
-            }
-        }
-    }
+            int virtualSource = this.cfg.getVirtualLinkSource(uv);
+            int virtualDestination = this.cfg.getVirtualLinkDestination(uv);
 
-    /**
-     * make the physical node with index _j_ to have zero instance with type _i_
-     * this function is used by ingress/egress constraints
-     * @param i type index
-     * @param j physical node index
-     */
-    private void physicalNodeWithoutTypeConstraint(int i, int j, String type) throws IloException {
-        IloLinearIntExpr constraint = this.modeler.linearIntExpr();
-
-        constraint.addTerm(1, this.y[j][i]);
-
-        this.modeler.addEq(constraint, 0, String.format("%s_constraint_type{%d}_node{%d}", type, i, j));
-    }
+            for (int i = 0; i < this.cfg.getW(); i++) {  // Source of Physical link
+                IloLinearIntExpr linkConstraint = this.modeler.linearIntExpr();
+                IloLinearIntExpr nodeConstraint = this.modeler.linearIntExpr();
 
-    /**
-     * VNF support constraint
-     * @throws IloException
-     */
-    private void vnfSupportConstraint() throws IloException {
-        for (int i = 0; i < this.cfg.getW(); i++) {
-            if (!this.cfg.getNodes().get(i).isVnfSupport()) {
-            	IloLinearIntExpr constraint = this.modeler.linearIntExpr();
+                // link constraint
+                for (int p = this.cfg.getOutgoing().begin(i); p < this.cfg.getOutgoing().end(i); p++) { // Outgoing physical links
+                    linkConstraint.addTerm(1, this.tau[this.cfg.getOutgoing().link(p)][uv]);
+                }
+                for (int p = this.cfg.getIncoming().begin(i); p < this.cfg.getIncoming().end(i); p++) { // Incoming physical links
+                    linkConstraint.addTerm(-1, this.tau[this.cfg.getIncoming().link(p)][uv]);
+                }
 
-                for (int j = 0; j < this.cfg.getF(); j++) {
-                    constraint.addTerm(1, this.y[i][j]);
+                // node constraint
+                if (this.z[i][virtualSource] != null) {
+                    nodeConstraint.addTerm(1, this.z[i][virtualSource]);
+                }
+                if (this.z[i][virtualDestination] != null) {
+                    nodeConstraint.addTerm(-1, this.z[i][virtualDestination]);
                 }
 
-                this.modeler.addEq(constraint, 0, String.format("vnf_support_constraint_node{%d}", i));
+                this.modeler.addEq(linkConstraint, nodeConstraint, name("flow_conservation"));
             }
         }
     }
 
     /**
-     * Flow conservation
+     * Link Bandwidth Constraint
      * @throws IloException
      */
-    private void flowConservation() throws IloException {
-        // linkConstraint == nodeConstraint
-        int v = 0;
-        int u = 0;
-        for (Chain chain : this.cfg.getChains()) {
-            for (int i = 0; i < this.cfg.getW(); i++) {  // Source of Physical link
-                for (int l = 0; l < chain.links(); l++) { // Virtual link
-                    int virtualSource = chain.getLink(l).getSource() + v;
-                    int virtualDestination = chain.getLink(l).getDestination() + v;
-
-                    IloLinearIntExpr linkConstraint = this.modeler.linearIntExpr();
-                    IloLinearIntExpr nodeConstraint = this.modeler.linearIntExpr();
-
-                    // link constraint
-                    for (int j = 0; j < this.cfg.getW(); j++) { // Destination of Physical link
-                        if (this.cfg.getE()[i][j] > 0) {
-                            linkConstraint.addTerm(1, this.tau[i][j][u + l]);
-                        }
-                        if (this.cfg.getE()[j][i] > 0) {
-                            linkConstraint.addTerm(-1, this.tau[j][i][u + l]);
-                        }
-                    }
-
-                    // node constraint
-                    for (int k = 0; k < this.cfg.getF(); k++) {
-                        if (chain.getNode(virtualSource - v).getIndex() == k) {
-                            nodeConstraint.addTerm(1, this.z[k][i][virtualSource]);
-                        }
-                        if (chain.getNode(virtualDestination - v).getIndex() == k) {
-                            nodeConstraint.addTerm(-1, this.z[k][i][virtualDestination]);
-                        }
-                    }
-
-                    this.modeler.addEq(linkConstraint, nodeConstraint, "flow_conservation");
+    private void linkBandwidthConstraint() throws IloException {
+        for (int e = 0; e < this.cfg.getLinks().size(); e++) {
+            IloLinearIntExpr constraint = this.modeler.linearIntExpr();
+
+            // VNFs
+            for (int uv = 0; uv < this.cfg.getU(); uv++) {
+                if (this.tau[e][uv] != null) {
+                    constraint.addTerm(this.cfg.getVirtualLinkBandwidth(uv), this.tau[e][uv]);
                 }
             }
-            v += chain.nodes();
-            u += chain.links();
+
+            this.modeler.addLe(constraint, this.cfg.getLinks().get(e).getBandwidth(), name("link_bandwidth_constraint"));
         }
     }
 
     /**
-     * Link Bandwidth Constraint
-     * @throws IloException
+     * Reads the solution of phase 1 with a single call per variable family.
+     *
+     * @param cplex CPLEX instance that solved phase 1
+     * @return compact copy of the phase 1 solution
      */
-    private void linkBandwidthConstraint() throws IloException {
+    public Snapshot snapshot(IloCplex cplex) throws IloException {
+        double[] x = Extractor.values(cplex, this.x);
+        double[][] y = Extractor.values(cplex, this.y);
+        double[][] z = Extractor.values(cplex, this.z);
+        double[][] tau = Extractor.values(cplex, this.tau);
+
+        boolean[] accepted = new boolean[this.cfg.getT()];
+        for (int h = 0; h < this.cfg.getT(); h++) {
+            accepted[h] = x[h] > 0.5;
+        }
+
+        int[][] instances = new int[this.cfg.getW()][this.cfg.getF()];
         for (int i = 0; i < this.cfg.getW(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                if (this.cfg.getE()[i][j] > 0) {
-                    IloLinearIntExpr constraint = this.modeler.linearIntExpr();
-
-                    int u = 0;
-                    int v = 0;
-                    for (Chain chain : this.cfg.getChains()) {
-                        // VNFs
-                        for (int k = 0; k < chain.links(); k++) {
-                            constraint.addTerm(chain.getLink(k).getBandwidth(), this.tau[i][j][k + u]);
-                        }
-
-                        v += chain.nodes();
-                        u += chain.links();
-                    }
-
-                    this.modeler.addLe(constraint, this.cfg.getE()[i][j], "link_bandwidth_constraint");
+            for (int j = 0; j < this.cfg.getF(); j++) {
+                instances[i][j] = (int) Math.round(y[i][j]);
+            }
+        }
+
+        int[] hosts = new int[this.cfg.getV()];
+        for (int k = 0; k < this.cfg.getV(); k++) {
+            hosts[k] = -1;
+        }
+        for (int j = 0; j < this.cfg.getW(); j++) {
+            for (int k = 0; k < this.cfg.getV(); k++) {
+                if (z[j][k] > 0.5) {
+                    hosts[k] = j;
                 }
             }
         }
+
+        int[][] routes = new int[this.cfg.getU()][];
+        for (int uv = 0; uv < this.cfg.getU(); uv++) {
+            int source = hosts[this.cfg.getVirtualLinkSource(uv)];
+            routes[uv] = source != -1 ? Extractor.route(tau, uv, this.cfg.getOutgoing(), source) : new int[0];
+        }
+
+        return new Snapshot(accepted, instances, hosts, routes);
     }
 
     public IloIntVar[] getX() {
@@ -404,11 +416,11 @@ public class Phase1 {
         return y;
     }
 
-    public IloIntVar[][][] getZ() {
+    public IloIntVar[][] getZ() {
         return z;
     }
 
-    public IloIntVar[][][] getTau() {
+    public IloIntVar[][] getTau() {
         return tau;
     }
 }
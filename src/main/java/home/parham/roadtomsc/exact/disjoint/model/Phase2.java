@@ -1,10 +1,10 @@
 package home.parham.roadtomsc.exact.disjoint.model;
 
-import home.parham.roadtomsc.domain.Chain;
-import home.parham.roadtomsc.domain.Types;
 import home.parham.roadtomsc.exact.Config;
 import ilog.concert.*;
-import ilog.cplex.IloCplex;
+
+import java.util.Arrays;
+import java.util.BitSet;
 
 /**
  * Model creates variables, objective and constraints of mathematical
@@ -22,44 +22,40 @@ public class Phase2 {
     private final Config cfg;
 
     /**
-     * binary variable assuming the value 1 if the _h_th SFC request is accepted;
-     * otherwise its value is zero.
-     *
-     * x[h]
-     * .lp format: x (chain number)
+     * names indicates that variables and constraints have names. names are only
+     * required for exporting the model and formatting them takes a lot of time and memory
+     * on large instances so they are disabled by default.
      */
-    private IloIntVar[] x;
+    private final boolean names;
 
+    /**
+     * phase 1 solution, placement and routing of the accepted chains are constants in phase 2.
+     */
+    private Snapshot snapshot;
 
     /**
-     * the number of VNF instances of type _k_ that are used in server _w_.
+     * binary variable assuming the value 1 if the _h_th SFC request is accepted;
+     * otherwise its value is zero. phase 2 only keeps the chains that are accepted in phase 1
+     * so it is null for the rejected ones.
      *
-     * y[w][k]
-     * .lp format: y (physical node, type)
+     * x[h]
+     * .lp format: x (chain number)
      */
-    private IloIntVar[][] y;
-
+    private IloIntVar[] x;
 
     /**
      * the number of VNFMs (each vnfm has its capacity and license fee) that are used in server _w_.
+     * it is null when server _w_ has no capacity left for a VNFM.
      *
      * yh[w]
      * .lp format: y (physical node)
      */
     private IloIntVar[] yHat;
 
-    /**
-     * binary variable assuming the value 1 if the VNF node _v_ is served by the VNF instance of type
-     * _k_ in the server _w_.
-     *
-     * z[k][w][v]
-     * .lp format: z (type, physical node, chain number _ node number in the chain)
-     */
-    private IloIntVar[][][] z;
-
     /**
      * binary variable assuming the value 1 if the _h_th SFC is assigned to VNFM
-     * on server w.
+     * on server w. it is null when the chain is rejected in phase 1 or when server _w_ cannot
+     * manage one of the chain VNFs on their phase 1 hosts or it is farther than the VNFM radius from them.
      *
      * zh[h][w]
      * .lp format: zh (chain number, physical node)
@@ -67,165 +63,176 @@ public class Phase2 {
     private IloIntVar[][] zHat;
 
     /**
-     * binary variable assuming the value 1 if the virtual link _(u, v)_ is routed on
-     * the physical network link from _i_ to _j_.
+     * binary variable assuming the value 1 if the management of VNF node _v_
+     * is routed on the physical network link _e_ (from _i_ to _j_).
+     * these variables are indexed by physical links so there is no variable for
+     * node pairs without a physical link between them. non-manageable VNFs and VNFs of the rejected
+     * chains have no management route so their entries are null, the links that are not on any path
+     * from the phase 1 host to a manager of the chain within the VNFM radius are null too.
      *
-     * tau[i][j][uv]
-     * .lp format: tau (physical link source, physical link destination, chain number _ link number in the chain)
+     * tauHat[e][v]
+     * .lp format: tauh (physical link source, physical link destination, chain number _ node number in the chain)
      */
-    private IloIntVar[][][] tau;
+    private IloIntVar[][] tauHat;
 
     /**
-     * binary variable assuming the value 1 if the management of VNF node _v_
-     * is routed on the physical network link from _i_ to _j_.
      *
-     * tauHat[i][j][v]
-     * .lp format: tauh (physical link source, physical link destination, chain number _ node number in the chain)
+     * @param pModeler CPLEX modeler instance
+     * @param pCfg configuration instance
      */
-    private IloIntVar[][][] tauHat;
+    public Phase2(final IloModeler pModeler, final Config pCfg) {
+        this(pModeler, pCfg, false);
+    }
 
     /**
      *
      * @param pModeler CPLEX modeler instance
      * @param pCfg configuration instance
+     * @param pNames creates variables and constraints with names
      */
-    public Phase2(final IloModeler pModeler, final Config pCfg) {
+    public Phase2(final IloModeler pModeler, final Config pCfg, final boolean pNames) {
         this.modeler = pModeler;
         this.cfg = pCfg;
+        this.names = pNames;
+    }
+
+    /**
+     * Formats name of a variable or a constraint when names are enabled.
+     *
+     * @return name or null that lets CPLEX use its default name
+     */
+    private String name(String format, Object... args) {
+        if (!this.names) {
+            return null;
+        }
+        return String.format(format, args);
     }
 
     /**
      * Adds model variables.
      *
+     * @param snapshot phase 1 solution that fixes the placement and routing of the chains
      * @return Model
      */
-    public Phase2 variables(IloIntVar[] x, IloIntVar[][] y, IloIntVar[][][] z, IloIntVar[][][] tau, IloCplex cplex) throws IloException {
-        xVariable(x, cplex);
-        yVariable(y, cplex);
-        zVariable(z, cplex);
+    public Phase2 variables(Snapshot snapshot) throws IloException {
+        this.snapshot = snapshot;
+
+        xVariable();
         yHatVariable();
         zHatVariable();
 
-        tauTauHatVariable(tau, cplex);
+        tauHatVariable();
 
         return this;
     }
 
-    private void xVariable(IloIntVar[] x, IloCplex cplex) throws IloException {
+    private void xVariable() throws IloException {
         // x
         this.x = new IloIntVar[this.cfg.getT()];
-        String[] xNames = new String[this.cfg.getT()];
         for (int i = 0; i < this.cfg.getT(); i++) {
-            xNames[i] = String.format("x(%d)", i);
-            int v = (int) cplex.getValue(x[i]);
-            this.x[i] = this.modeler.intVar(0, v, xNames[i]);
-        }
-    }
-
-    private void yVariable(IloIntVar[][] y, IloCplex cplex) throws IloException {
-        // y
-        String[][] yNames = new String[this.cfg.getW()][this.cfg.getF()];
-        for (int i = 0; i < this.cfg.getW(); i++) {
-            for (int j = 0; j < this.cfg.getF(); j++) {
-                yNames[i][j] = String.format("y(%d,%d)", i, j);
-            }
-        }
-        this.y = new IloIntVar[this.cfg.getW()][this.cfg.getF()];
-        for (int i = 0; i < this.cfg.getW(); i++) {
-            for (int j = 0; j < this.cfg.getF(); j++) {
-                int v = (int) cplex.getValue(y[i][j]);
-                this.y[i][j] = this.modeler.intVar(0, v, yNames[i][j]);
+            // chain can still be rejected when it cannot be managed
+            if (this.snapshot.isAccepted(i)) {
+                this.x[i] = this.modeler.boolVar(name("x(%d)", i));
             }
         }
     }
 
     private void yHatVariable() throws IloException {
         // yHat
-        String[] yHatNames = new String[this.cfg.getW()];
-        for (int i = 0; i < this.cfg.getW(); i++) {
-            yHatNames[i] = String.format("yh(%d)", i);
-        }
-        this.yHat = this.modeler.intVarArray(this.cfg.getW() , 0, Integer.MAX_VALUE, yHatNames);
-    }
+        this.yHat = new IloIntVar[this.cfg.getW()];
 
-    private void zVariable(IloIntVar[][][] z, IloCplex cplex) throws IloException {
-        // z
-        String[][][] zNames = new String[this.cfg.getF()][this.cfg.getW()][this.cfg.getV()];
-        for (int i = 0; i < this.cfg.getF(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                int v = 0;
-                for (int h = 0; h < this.cfg.getT(); h++) {
-                    for (int k = 0; k < this.cfg.getChains().get(h).nodes(); k++) {
-                        zNames[i][j][k + v] = String.format("z(%d,%d,%d_%d)", i, j, h, k);
-                    }
-                    v += this.cfg.getChains().get(h).nodes();
-                }
+        // VNFMs only manage the VNFs of the accepted chains
+        int manageable = 0;
+        for (int h = 0; h < this.cfg.getT(); h++) {
+            if (this.snapshot.isAccepted(h)) {
+                manageable += this.cfg.getManageableCount(h);
             }
         }
-        this.z = new IloIntVar[this.cfg.getF()][this.cfg.getW()][this.cfg.getV()];
-        for (int i = 0; i < this.cfg.getF(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                for (int k = 0; k < this.cfg.getV(); k++) {
-                    int v = (int) cplex.getValue(z[i][j][k]);
-                    this.z[i][j][k] = modeler.intVar(0, v, zNames[i][j][k]);
-                }
+
+        for (int i = 0; i < this.cfg.getW(); i++) {
+            int bound = Config.bound(this.residualCores(i), this.residualRam(i), this.cfg.getVnfmCores(), this.cfg.getVnfmRam(),
+                    Config.vnfms(manageable, this.cfg.getVnfmCapacity()));
+            // there is no VNFM on a physical node without capacity for it
+            if (bound > 0) {
+                this.yHat[i] = this.modeler.intVar(0, bound, name("yh(%d)", i));
             }
         }
     }
 
     private void zHatVariable() throws IloException {
         // zHat
-        String[][] zHatNames = new String[this.cfg.getT()][this.cfg.getW()];
-        for (int i = 0; i < this.cfg.getT(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                zHatNames[i][j] = String.format("zh(%d,%d)", i, j);
-            }
-        }
         this.zHat = new IloIntVar[this.cfg.getT()][this.cfg.getW()];
         for (int i = 0; i < this.cfg.getT(); i++) {
+            if (!this.snapshot.isAccepted(i)) {
+                continue;
+            }
+
+            // physical nodes that cannot manage a VNF of the chain on its phase 1 host,
+            // that are farther than the radius from it or that have no VNFM for it
+            BitSet forbidden = new BitSet(this.cfg.getW());
+            for (int n = 0; n < this.cfg.getW() && this.cfg.getManageableCount(i) > 0; n++) {
+                if (this.yHat[n] == null) {
+                    forbidden.set(n);
+                }
+            }
+            for (int v = this.cfg.getVnfOffset(i); v < this.cfg.getVnfOffset(i + 1); v++) {
+                if (this.cfg.isVnfManageable(v)) {
+                    for (int n : this.cfg.getForbiddenManagers(this.snapshot.getHost(v))) {
+                        forbidden.set(n);
+                    }
+                    for (int n = 0; n < this.cfg.getW(); n++) {
+                        if (!this.cfg.isWithinRadius(this.snapshot.getHost(v), n)) {
+                            forbidden.set(n);
+                        }
+                    }
+                }
+            }
+
             for (int j = 0; j < this.cfg.getW(); j++) {
-                this.zHat[i][j] = this.modeler.boolVar(zHatNames[i][j]);
+                if (!forbidden.get(j)) {
+                    this.zHat[i][j] = this.modeler.boolVar(name("zh(%d,%d)", i, j));
+                }
             }
         }
     }
 
-    private void tauTauHatVariable(IloIntVar[][][] tau, IloCplex cplex) throws IloException {
-        // tau, tauHat
-        String[][][] tauNames = new String[this.cfg.getW()][this.cfg.getW()][this.cfg.getU()];
-        String[][][] tauHatNames = new String[this.cfg.getW()][this.cfg.getW()][this.cfg.getV()];
-        for (int i = 0; i < this.cfg.getW(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                int u = 0;
-                int v = 0;
-                for (int h = 0; h < this.cfg.getT(); h++) {
-                    for (int k = 0; k < this.cfg.getChains().get(h).links(); k++) {
-                        tauNames[i][j][u + k] = String.format("tau(%d,%d,%d_%d)", i, j, h, k);
-                    }
-                    u += this.cfg.getChains().get(h).links();
+    private void tauHatVariable() throws IloException {
+        // tauHat
+        this.tauHat = new IloIntVar[this.cfg.getLinks().size()][this.cfg.getV()];
+        for (int h = 0; h < this.cfg.getT(); h++) {
+            if (!this.snapshot.isAccepted(h)) {
+                continue;
+            }
 
-                    for (int k = 0; k < this.cfg.getChains().get(h).nodes(); k++) {
-                        tauHatNames[i][j][v + k] = String.format("tauh(%d,%d,%d_%d)", i, j, h, k);
+            // hop distance of each physical node from the nearest manager of the chain
+            int[] nearest = new int[this.cfg.getW()];
+            Arrays.fill(nearest, -1);
+            for (int n = 0; n < this.cfg.getW(); n++) {
+                if (this.zHat[h][n] == null) {
+                    continue;
+                }
+                for (int b = 0; b < this.cfg.getW(); b++) {
+                    int hops = this.cfg.getHops(b, n);
+                    if (hops != -1 && (nearest[b] == -1 || hops < nearest[b])) {
+                        nearest[b] = hops;
                     }
-                    v += this.cfg.getChains().get(h).nodes();
                 }
             }
-        }
-        this.tauHat = new IloIntVar[this.cfg.getW()][this.cfg.getW()][this.cfg.getV()];
-        this.tau = new IloIntVar[this.cfg.getW()][this.cfg.getW()][this.cfg.getU()];
-        for (int i = 0; i < this.cfg.getW(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
 
-                for (int k = 0; k < this.cfg.getU(); k++) {
-                    int v = 0;
-                    try {
-                        v = (int) cplex.getValue(tau[i][j][k]);
-                    } catch (IloException e) {
-                    }
-                    this.tau[i][j][k] = modeler.intVar(0, v, tauNames[i][j][k]);
+            // management routes only exist for manageable VNFs of the accepted chains and they only use
+            // the links that are on a path from the phase 1 host to a manager within the radius
+            for (int v = this.cfg.getVnfOffset(h); v < this.cfg.getVnfOffset(h + 1); v++) {
+                if (!this.cfg.isVnfManageable(v)) {
+                    continue;
                 }
+                for (int e = 0; e < this.cfg.getLinks().size(); e++) {
+                    int i = this.cfg.getLinks().get(e).getSource();
+                    int j = this.cfg.getLinks().get(e).getDestination();
 
-                for (int k = 0; k < this.cfg.getV(); k++) {
-                    this.tauHat[i][j][k] = modeler.boolVar(tauHatNames[i][j][k]);
+                    int hops = this.cfg.getHops(this.snapshot.getHost(v), i);
+                    if (hops != -1 && nearest[j] != -1 && hops + 1 + nearest[j] <= this.cfg.getVnfmRadius()) {
+                        this.tauHat[e][v] = modeler.boolVar(name("tauh(%d,%d,%d_%d)", i, j, h, v - this.cfg.getVnfOffset(h)));
+                    }
                 }
             }
         }
@@ -239,10 +246,14 @@ public class Phase2 {
     public Phase2 objective() throws IloException {
         IloLinearNumExpr expr = this.modeler.linearNumExpr();
         for (int i = 0; i < this.cfg.getT(); i++) {
-            expr.addTerm(this.cfg.getChains().get(i).getCost(), this.x[i]);
+            if (this.x[i] != null) {
+                expr.addTerm(this.cfg.getChains().get(i).getCost(), this.x[i]);
+            }
         }
         for (int i = 0; i < this.cfg.getW(); i++) {
-            expr.addTerm(-this.cfg.getVnfmLicenseFee(), this.yHat[i]);
+            if (this.yHat[i] != null) {
+                expr.addTerm(-this.cfg.getVnfmLicenseFee(), this.yHat[i]);
+            }
         }
         this.modeler.addMaximize(expr);
 
@@ -256,18 +267,15 @@ public class Phase2 {
      */
     public Phase2 constraints() throws IloException {
         this.nodeMemoryCPUConstraint();
-        this.servicePlaceConstraint();
-        this.serviceTypeConstraint();
         this.manageConstraint();
         this.managePlaceConstraint();
-        this.vnfSupportConstraint();
-        this.managerToNodeSupportConstraint();
 
-        this.flowConservation();
-        this.managementFlowConservation();
+        /*
+        service place, service type and flow conservation constraints are satisfied by the phase 1 solution.
+        manager to node support constraints are replaced by the missing zHat of the forbidden managers.
+        */
 
-        this.egressConstraint();
-        this.ingressConstraint();
+        this.managementFlowConservation();
 
         this.linkBandwidthConstraint();
         this.radiusConstraint();
@@ -276,71 +284,50 @@ public class Phase2 {
     }
 
     /**
-     * Node Memory/CPU Constraint
+     * Node Memory/CPU Constraint on the capacity that is left from the phase 1 instances
      * @throws IloException
      */
     private void nodeMemoryCPUConstraint() throws IloException {
         for (int i = 0; i < this.cfg.getW(); i++) {
-            IloLinearNumExpr ramConstraint = this.modeler.linearNumExpr();
-            IloLinearNumExpr cpuConstraint = this.modeler.linearNumExpr();
+            // physical node has no capacity left for a VNFM so phase 2 does not use it
+            if (this.yHat[i] == null) {
+                continue;
+            }
+
+            int ram = this.residualRam(i);
+            int cores = this.residualCores(i);
+
+            IloLinearIntExpr ramConstraint = this.modeler.linearIntExpr();
+            IloLinearIntExpr cpuConstraint = this.modeler.linearIntExpr();
 
             ramConstraint.addTerm(this.cfg.getVnfmRam(), this.yHat[i]); // VNFMs ram
             cpuConstraint.addTerm(this.cfg.getVnfmCores(), this.yHat[i]); // VNFMs cpu
 
-            for (int j = 0; j < this.cfg.getF(); j++) {
-                ramConstraint.addTerm(Types.get(j).getRam(), this.y[i][j]); // instance ram
-                cpuConstraint.addTerm(Types.get(j).getCores(), this.y[i][j]); // instance cpu
-            }
-
-            this.modeler.addLe(cpuConstraint, this.cfg.getNodes().get(i).getCores(),
-                    String.format("node_cpu_constraint_node{%d}", i));
-            this.modeler.addLe(ramConstraint, this.cfg.getNodes().get(i).getRam(),
-                    String.format("node_memory_constraint_node{%d}", i));
+            this.modeler.addLe(cpuConstraint, cores, name("node_cpu_constraint_node{%d}", i));
+            this.modeler.addLe(ramConstraint, ram, name("node_memory_constraint_node{%d}", i));
         }
     }
 
     /**
-     * Service Place Constraint
-     * @throws IloException
+     * @return cores of physical node _i_ that are left from the phase 1 instances
      */
-    private void servicePlaceConstraint() throws IloException {
-        for (int i = 0; i < this.cfg.getF(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                IloLinearIntExpr constraint = this.modeler.linearIntExpr();
-
-                for (int k = 0; k < this.cfg.getV(); k++) {
-                    constraint.addTerm(1, this.z[i][j][k]);
-                }
-
-                this.modeler.addLe(constraint, this.y[j][i], String.format("service_place_constraint_type{%d}_node{%d}", i, j));
-            }
+    private int residualCores(int i) {
+        int cores = this.cfg.getNodeCores(i);
+        for (int j = 0; j < this.cfg.getF(); j++) {
+            cores -= this.cfg.getTypeCores(j) * this.snapshot.getInstances(i, j); // instance cpu
         }
+        return cores;
     }
 
     /**
-     * Service Constraint + Type constraint
-     * @throws IloException
+     * @return ram of physical node _i_ that is left from the phase 1 instances
      */
-    private void serviceTypeConstraint() throws IloException {
-        int v = 0;
-        for (int h = 0; h < this.cfg.getT(); h++) {
-            for (int k = 0; k < this.cfg.getChains().get(h).nodes(); k++) {
-                IloLinearIntExpr constraint = this.modeler.linearIntExpr();
-
-                for (int i = 0; i < this.cfg.getF(); i++) {
-                    for (int j = 0; j < this.cfg.getW(); j++) {
-                        // adds z variable into service constraint if type of z is equal to type of node v
-                        if (this.cfg.getChains().get(h).getNode(k).getIndex() == i) {
-                            constraint.addTerm(1, this.z[i][j][k + v]);
-                        }
-                    }
-                }
-
-                // if chain `h` is serviced then all of its nodes should be serviced
-                this.modeler.addEq(constraint, this.x[h], String.format("service_constraint_chain{%d}_vnf{%d}", h, k));
-            }
-            v += this.cfg.getChains().get(h).nodes();
+    private int residualRam(int i) {
+        int ram = this.cfg.getNodeRam(i);
+        for (int j = 0; j < this.cfg.getF(); j++) {
+            ram -= this.cfg.getTypeRam(j) * this.snapshot.getInstances(i, j); // instance ram
         }
+        return ram;
     }
 
     /**
@@ -349,64 +336,20 @@ public class Phase2 {
      */
     private void manageConstraint() throws IloException {
             for (int i = 0; i < this.cfg.getT(); i++) {
-                IloLinearIntExpr constraint = this.modeler.linearIntExpr();
-
-                for (int j = 0; j < this.cfg.getW(); j++) {
-                    constraint.addTerm(1, this.zHat[i][j]);
+                if (this.x[i] == null) {
+                    continue;
                 }
 
-                this.modeler.addEq(constraint, this.x[i], String.format("manage_constraint_chain{%d}", i));
-            }
-    }
+                IloLinearIntExpr constraint = this.modeler.linearIntExpr();
 
-    /**
-     * make all physical node that does not have egress support to have zero instance with egress type
-     * @throws IloException
-     */
-    private void egressConstraint() throws IloException {
-        for (int i = 0; i < this.cfg.getF(); i++) {
-            if (!Types.get(i).isEgress()) { // do the following only for egress types
-                continue;
-            }
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                // physical node without have egress support must have zero instance with egress type
-                if (!this.cfg.getNodes().get(j).isEgress()) {
-                    physicalNodeWithoutTypeConstraint(i, j, "egress");
+                for (int j = 0; j < this.cfg.getW(); j++) {
+                    if (this.zHat[i][j] != null) {
+                        constraint.addTerm(1, this.zHat[i][j]);
+                    }
                 }
-            }
-        }
-    }
 
-    /**
-     * make all physical node that does not have ingress support to have zero instance with ingress type
-     * @throws IloException
-     */
-    private void ingressConstraint() throws IloException {
-        for (int i = 0; i < this.cfg.getF(); i++) {
-            if (!Types.get(i).isIngress()) { // do the following only for ingress types
-                continue;
-            }
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                // physical node without have ingress support must have zero instance with ingress type
-                if (!this.cfg.getNodes().get(j).isIngress()) {
-                    physicalNodeWithoutTypeConstraint(i, j, "ingress");
-                }
+                this.modeler.addEq(constraint, this.x[i], name("manage_constraint_chain{%d}", i));
             }
-        }
-    }
-
-    /**
-     * make the physical node with index _j_ to have zero instance with type _i_
-     * this function is used by ingress/egress constraints
-     * @param i type index
-     * @param j physical node index
-     */
-    private void physicalNodeWithoutTypeConstraint(int i, int j, String type) throws IloException {
-        IloLinearIntExpr constraint = this.modeler.linearIntExpr();
-
-        constraint.addTerm(1, this.y[j][i]);
-
-        this.modeler.addEq(constraint, 0, String.format("%s_constraint_type{%d}_node{%d}", type, i, j));
     }
 
     /**
@@ -415,198 +358,97 @@ public class Phase2 {
      */
     private void managePlaceConstraint() throws IloException {
         for (int j = 0; j < this.cfg.getW(); j++) {
+            // there is no manager of the chains with manageable VNFs on the physical node
+            if (this.yHat[j] == null) {
+                continue;
+            }
+
             IloLinearIntExpr constraint = this.modeler.linearIntExpr();
 
             for (int i = 0; i < this.cfg.getT(); i++) {
-                constraint.addTerm(
-                        (int) this.cfg.getChains().get(i).getNodes().stream().filter(Types.Type::isManageable).count(),
-                        this.zHat[i][j]);
+                if (this.zHat[i][j] == null) {
+                    continue;
+                }
+                constraint.addTerm(this.cfg.getManageableCount(i), this.zHat[i][j]);
             }
 
             constraint.addTerm(-this.cfg.getVnfmCapacity(), this.yHat[j]);
-            this.modeler.addLe(constraint,0, String.format("manage_place_constraint_node{%d}", j));
+            this.modeler.addLe(constraint,0, name("manage_place_constraint_node{%d}", j));
         }
     }
 
     /**
-     * VNF support constraint
-     * @throws IloException
-     */
-    private void vnfSupportConstraint() throws IloException {
-        for (int i = 0; i < this.cfg.getW(); i++) {
-            if (!this.cfg.getNodes().get(i).isVnfSupport()) {
-            	IloLinearIntExpr constraint = this.modeler.linearIntExpr();
-
-                for (int j = 0; j < this.cfg.getF(); j++) {
-                    constraint.addTerm(1, this.y[i][j]);
-                }
-
-                this.modeler.addEq(constraint, 0, String.format("vnf_support_constraint_node{%d}", i));
-            }
-        }
-    }
-
-    /**
-     * Manager to node support constraint
+     * Management Flow conservation
      * @throws IloException
      */
-    private void managerToNodeSupportConstraint() throws IloException {
-        int v = 0;
-        for (int h = 0; h < this.cfg.getT(); h++) {
-            for (int k = 0; k < this.cfg.getChains().get(h).nodes(); k++) {
-                for (int i = 0; i < this.cfg.getF(); i++) {
-
-                    if (!Types.get(i).isManageable()) {
-                        continue;
-                    }
-
-                    // skip if k-th vnf does not have type i
-                    if (this.cfg.getChains().get(h).getNode(k).getIndex() != i) {
-                        continue;
-                    }
-
-                    for (int j = 0; j < this.cfg.getW(); j++) {
-                        IloLinearIntExpr constraint = this.modeler.linearIntExpr();
-
-                        for (int n = 0; n < this.cfg.getW(); n++) {
-                            if (this.cfg.getNodes().get(j).getNotManagerNodes().contains(n)) {
-                                // chain h cannot manage by physical node _n_ if node _v_ from chain _h_ placed
-                                // on physical node _j_
-                                constraint.addTerm(1, this.zHat[h][n]);
-                            }
-                        }
-                        // if constraint is empty skip it!
-                        if (!constraint.linearIterator().hasNext()) {
-                            continue;
-                        }
-
-                        IloLinearIntExpr rhs = this.modeler.linearIntExpr(1);
-                        rhs.addTerm(-1, z[i][j][k + v]);
-
-                        this.modeler.addLe(constraint,  rhs, String.format("manager_to_node_support_constraint_chain{%d}_vnf{%d}_type{%d}_node{%d}", h, k + v, i, j));
-                    }
-                }
+    private void managementFlowConservation() throws IloException {
+        // linkConstraint == nodeConstraint
+        for (int v = 0; v < this.cfg.getV(); v++) { // Virtual node
+            int h = this.cfg.getVnfChain(v);
+            if (!this.cfg.isVnfManageable(v) || this.x[h] == null) {
+                continue;
             }
-            v += this.cfg.getChains().get(h).nodes();
-        }
-    }
 
-    /**
-     * Flow conservation
-     * @throws IloException
-     */
-    private void flowConservation() throws IloException {
-        // linkConstraint == nodeConstraint
-        int v = 0;
-        int u = 0;
-        for (Chain chain : this.cfg.getChains()) {
             for (int i = 0; i < this.cfg.getW(); i++) {  // Source of Physical link
-                for (int l = 0; l < chain.links(); l++) { // Virtual link
-                    int virtualSource = chain.getLink(l).getSource() + v;
-                    int virtualDestination = chain.getLink(l).getDestination() + v;
-
-                    IloLinearIntExpr linkConstraint = this.modeler.linearIntExpr();
-                    IloLinearIntExpr nodeConstraint = this.modeler.linearIntExpr();
+                IloLinearIntExpr linkConstraint = this.modeler.linearIntExpr();
+                IloLinearIntExpr nodeConstraint = this.modeler.linearIntExpr();
 
-                    // link constraint
-                    for (int j = 0; j < this.cfg.getW(); j++) { // Destination of Physical link
-                        if (this.cfg.getE()[i][j] > 0) {
-                            linkConstraint.addTerm(1, this.tau[i][j][u + l]);
-                        }
-                        if (this.cfg.getE()[j][i] > 0) {
-                            linkConstraint.addTerm(-1, this.tau[j][i][u + l]);
-                        }
+                // link constraint
+                for (int p = this.cfg.getOutgoing().begin(i); p < this.cfg.getOutgoing().end(i); p++) { // Outgoing physical links
+                    if (this.tauHat[this.cfg.getOutgoing().link(p)][v] != null) {
+                        linkConstraint.addTerm(1, this.tauHat[this.cfg.getOutgoing().link(p)][v]);
                     }
-
-                    // node constraint
-                    for (int k = 0; k < this.cfg.getF(); k++) {
-                        if (chain.getNode(virtualSource - v).getIndex() == k) {
-                            nodeConstraint.addTerm(1, this.z[k][i][virtualSource]);
-                        }
-                        if (chain.getNode(virtualDestination - v).getIndex() == k) {
-                            nodeConstraint.addTerm(-1, this.z[k][i][virtualDestination]);
-                        }
-                    }
-
-                    this.modeler.addEq(linkConstraint, nodeConstraint, "flow_conservation");
                 }
-            }
-            v += chain.nodes();
-            u += chain.links();
-        }
-    }
-
-    /**
-     * Management Flow conservation
-     * @throws IloException
-     */
-    private void managementFlowConservation() throws IloException {
-        // linkConstraint == nodeConstraint
-        int v = 0;
-        for (int h = 0; h < this.cfg.getT(); h++) {
-            for (int i = 0; i < this.cfg.getW(); i++) {  // Source of Physical link
-                for (int n = 0; n < this.cfg.getChains().get(h).nodes(); n++) { // Virtual node
-                    if (!this.cfg.getChains().get(h).getNode(n).isManageable()) {
-                        continue;
-                    }
-
-                    IloLinearIntExpr linkConstraint = this.modeler.linearIntExpr();
-                    IloLinearIntExpr nodeConstraint = this.modeler.linearIntExpr();
-
-                    // link constraint
-                    for (int j = 0; j < this.cfg.getW(); j++) { // Destination of Physical link
-                        if (this.cfg.getE()[i][j] > 0) {
-                            linkConstraint.addTerm(1, this.tauHat[i][j][v + n]);
-                        }
-                        if (this.cfg.getE()[j][i] > 0) {
-                            linkConstraint.addTerm(-1, this.tauHat[j][i][v + n]);
-                        }
+                for (int p = this.cfg.getIncoming().begin(i); p < this.cfg.getIncoming().end(i); p++) { // Incoming physical links
+                    if (this.tauHat[this.cfg.getIncoming().link(p)][v] != null) {
+                        linkConstraint.addTerm(-1, this.tauHat[this.cfg.getIncoming().link(p)][v]);
                     }
+                }
 
-                    // node constraint
-                    for (int k = 0; k < this.cfg.getF(); k++) {
-                        if (this.cfg.getChains().get(h).getNode(n).getIndex() == k) {
-                            nodeConstraint.addTerm(1, this.z[k][i][v + n]);
-                        }
-                    }
+                // node constraint, VNF node _v_ is on its phase 1 host while the chain is accepted
+                if (this.snapshot.getHost(v) == i) {
+                    nodeConstraint.addTerm(1, this.x[h]);
+                }
+                if (this.zHat[h][i] != null) {
                     nodeConstraint.addTerm(-1, this.zHat[h][i]);
+                }
 
-                    this.modeler.addEq(linkConstraint, nodeConstraint, "management_flow_conservation");
+                // physical node is out of the radius of the host and the managers of the VNF
+                if (!linkConstraint.linearIterator().hasNext() && !nodeConstraint.linearIterator().hasNext()) {
+                    continue;
                 }
+
+                this.modeler.addEq(linkConstraint, nodeConstraint, name("management_flow_conservation"));
             }
-            v += this.cfg.getChains().get(h).nodes();
         }
     }
 
     /**
-     * Link Bandwidth Constraint
+     * Link Bandwidth Constraint on the bandwidth that is left from the phase 1 routes
      * @throws IloException
      */
     private void linkBandwidthConstraint() throws IloException {
-        for (int i = 0; i < this.cfg.getW(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                if (this.cfg.getE()[i][j] > 0) {
-                    IloLinearIntExpr constraint = this.modeler.linearIntExpr();
-
-                    int u = 0;
-                    int v = 0;
-                    for (Chain chain : this.cfg.getChains()) {
-                        // VNFs
-                        for (int k = 0; k < chain.links(); k++) {
-                            constraint.addTerm(chain.getLink(k).getBandwidth(), this.tau[i][j][k + u]);
-                        }
+        int[] bandwidth = new int[this.cfg.getLinks().size()];
+        for (int e = 0; e < this.cfg.getLinks().size(); e++) {
+            bandwidth[e] = this.cfg.getLinks().get(e).getBandwidth();
+        }
+        for (int uv = 0; uv < this.cfg.getU(); uv++) {
+            for (int e : this.snapshot.getRoute(uv)) {
+                bandwidth[e] -= this.cfg.getVirtualLinkBandwidth(uv);
+            }
+        }
 
-                        // VNFM
-                        for (int k = 0; k < chain.nodes(); k++) {
-                            constraint.addTerm(this.cfg.getVnfmBandwidth(), this.tauHat[i][j][k + v]);
-                        }
-                        v += chain.nodes();
-                        u += chain.links();
-                    }
+        for (int e = 0; e < this.cfg.getLinks().size(); e++) {
+            IloLinearIntExpr constraint = this.modeler.linearIntExpr();
 
-                    this.modeler.addLe(constraint, this.cfg.getE()[i][j], "link_bandwidth_constraint");
+            // VNFM
+            for (int v = 0; v < this.cfg.getV(); v++) {
+                if (this.tauHat[e][v] != null) {
+                    constraint.addTerm(this.cfg.getVnfmBandwidth(), this.tauHat[e][v]);
                 }
             }
+
+            this.modeler.addLe(constraint, bandwidth[e], name("link_bandwidth_constraint"));
         }
     }
 
@@ -615,46 +457,40 @@ public class Phase2 {
      * @throws IloException
      */
     private void radiusConstraint() throws IloException {
-        for (int i = 0; i < this.cfg.getV(); i++) {
+        for (int v = 0; v < this.cfg.getV(); v++) {
+            if (!this.cfg.isVnfManageable(v) || this.x[this.cfg.getVnfChain(v)] == null) {
+                continue;
+            }
+
             IloLinearIntExpr constraint = this.modeler.linearIntExpr();
 
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                for (int k = 0; k < this.cfg.getW(); k++) {
-                    if (this.cfg.getE()[j][k] > 0) {
-                        constraint.addTerm(1, this.tauHat[j][k][i]);
-                    }
+            for (int e = 0; e < this.cfg.getLinks().size(); e++) {
+                if (this.tauHat[e][v] != null) {
+                    constraint.addTerm(1, this.tauHat[e][v]);
                 }
             }
 
-            this.modeler.addLe(constraint, this.cfg.getVnfmRadius(), "management_radius_constraint");
+            this.modeler.addLe(constraint, this.cfg.getVnfmRadius(), name("management_radius_constraint"));
         }
     }
 
-    public IloIntVar[] getX() {
-        return x;
+    public Snapshot getSnapshot() {
+        return snapshot;
     }
 
-    public IloIntVar[][] getY() {
-        return y;
+    public IloIntVar[] getX() {
+        return x;
     }
 
     public IloIntVar[] getyHat() {
         return yHat;
     }
 
-    public IloIntVar[][][] getZ() {
-        return z;
-    }
-
     public IloIntVar[][] getzHat() {
         return zHat;
     }
 
-    public IloIntVar[][][] getTau() {
-        return tau;
-    }
-
-    public IloIntVar[][][] getTauHat() {
+    public IloIntVar[][] getTauHat() {
         return tauHat;
     }
 }
@@ -0,0 +1,100 @@
+/*
+ * In The Name Of God
+ * ======================================
+ * [] Project Name : roadtomsc
+ *
+ * [] Package Name : home.parham.roadtomsc.exact.disjoint.model
+ *
+ * [] Creation Date : 17-10-2026
+ *
+ * [] Created By : Parham Alvani (parham.alvani@gmail.com)
+ * =======================================
+ */
+
+package home.parham.roadtomsc.exact.disjoint.model;
+
+/**
+ * Snapshot is a compact copy of the phase 1 solution (placement and routing of the chains)
+ * that is handed to phase 2.
+ */
+public class Snapshot {
+    /**
+     * accepted[h] indicates that the _h_th SFC request is accepted.
+     */
+    private final boolean[] accepted;
+
+    /**
+     * the number of VNF instances of type _k_ that are used in server _w_.
+     *
+     * instances[w][k]
+     */
+    private final int[][] instances;
+
+    /**
+     * index of the physical node that serves VNF node _v_ or -1 when it is not placed.
+     *
+     * hosts[v]
+     */
+    private final int[] hosts;
+
+    /**
+     * indices of the physical links that virtual link _uv_ is routed on in order from the host of its source.
+     *
+     * routes[uv]
+     */
+    private final int[][] routes;
+
+    public Snapshot(boolean[] accepted, int[][] instances, int[] hosts, int[][] routes) {
+        this.accepted = accepted;
+        this.instances = instances;
+        this.hosts = hosts;
+        this.routes = routes;
+    }
+
+    /**
+     * @param h chain index
+     * @return that the chain is accepted
+     */
+    public boolean isAccepted(int h) {
+        return this.accepted[h];
+    }
+
+    /**
+     * @param w physical node index
+     * @param k type index
+     * @return the number of instances of the type on the physical node
+     */
+    public int getInstances(int w, int k) {
+        return this.instances[w][k];
+    }
+
+    /**
+     * @param v VNF node index
+     * @return index of the physical node that serves the VNF node or -1
+     */
+    public int getHost(int v) {
+        return this.hosts[v];
+    }
+
+    /**
+     * @param uv virtual link index
+     * @return indices of the physical links that the virtual link is routed on
+     */
+    public int[] getRoute(int uv) {
+        return this.routes[uv];
+    }
+
+    /**
+     * @param uv virtual link index
+     * @param e physical link index
+     * @return that the virtual link is routed on the physical link
+     */
+    public boolean isRouted(int uv, int e) {
+        for (int l : this.routes[uv]) {
+            if (l == e) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * In The Name Of God
+ * ======================================
+ * [] Project Name : roadtomsc
+ *
+ * [] Package Name : home.parham.roadtomsc.exact.grouped
+ *
+ * [] Creation Date : 17-10-2026
+ *
+ * [] Created By : Parham Alvani (parham.alvani@gmail.com)
+ * =======================================
+ */
+
+package home.parham.roadtomsc.exact.grouped;
+
+import home.parham.roadtomsc.exact.Config;
+import home.parham.roadtomsc.exact.Environment;
+import home.parham.roadtomsc.exact.Pool;
+import home.parham.roadtomsc.exact.Progress;
+import home.parham.roadtomsc.exact.Usage;
+import home.parham.roadtomsc.exact.grouped.model.Model;
+import home.parham.roadtomsc.problem.Method;
+import home.parham.roadtomsc.problem.Solution;
+import ilog.concert.IloException;
+import ilog.cplex.IloCplex;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Solver solves the grouped model that has one set of variables for each class of identical chains
+ * and disaggregates its solution into the chains.
+ */
+public class Solver implements Method {
+    private Config cfg;
+
+    /**
+     * problem configuration that the solutions refer to
+     */
+    private home.parham.roadtomsc.problem.Config problem;
+
+    /**
+     * export indicates that the model is built with names and exported into a .lp file of the output directory
+     */
+    private boolean export;
+
+    /**
+     * pool provides the CPLEX instances
+     */
+    private Pool pool;
+
+    /**
+     * output is the directory that the result file and the exported models are written into,
+     * nothing is written when it is null
+     */
+    private Path output;
+
+    /**
+     * threads is the number of threads that CPLEX uses, zero lets CPLEX decide
+     */
+    private int threads;
+
+    public Solver(home.parham.roadtomsc.problem.Config cfg) {
+        this(cfg, Config.build(cfg));
+    }
+
+    /**
+     * @param problem problem configuration
+     * @param cfg configuration instance that is built from the problem configuration, it is shared between solvers
+     *            so presolve runs once for each problem
+     */
+    public Solver(home.parham.roadtomsc.problem.Config problem, Config cfg) {
+        this.problem = problem;
+        this.cfg = cfg;
+    }
+
+    /**
+     * @param export builds the model with names and exports it into a .lp file
+     */
+    public Solver export(boolean export) {
+        this.export = export;
+        return this;
+    }
+
+    /**
+     * @param pool pool that provides the CPLEX instances, without it each solve creates and ends its own instance
+     */
+    public Solver pool(Pool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * @param output directory that the result file and the exported models are written into
+     */
+    public Solver output(Path output) {
+        this.output = output;
+        return this;
+    }
+
+    /**
+     * @param threads number of threads that CPLEX uses, zero lets CPLEX decide
+     */
+    public Solver threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    private Environment environment() throws IloException {
+        if (this.pool != null) {
+            return this.pool.acquire();
+        }
+        return Environment.open();
+    }
+
+    @Override
+    public Solution solve() {
+        // result is buffered and written into the output directory at the end
+        StringWriter result = new StringWriter();
+        PrintWriter writer = new PrintWriter(result);
+
+        Solution solution = null;
+        try (Environment env = this.environment()) {
+            IloCplex cplex = env.getCplex();
+            if (this.threads > 0) {
+                cplex.setParam(IloCplex.Param.Threads, this.threads);
+            }
+
+            Instant built = Instant.now();
+            Model model = new Model(cplex, cfg, this.export);
+            model.variables().objective().constraints();
+            System.out.printf("Model (grouped) built in %s with %d classes of %d chains, %d rows and %d columns (peak heap %d MB, peak RSS %d MB)\n",
+                    Duration.between(built, Instant.now()), cfg.getClassCount(), cfg.getT(),
+                    cplex.getNrows(), cplex.getNcols(), Usage.peakHeap(), Usage.peakRss());
+
+            if (this.export && this.output != null) {
+                cplex.exportModel(this.output.resolve("grouped.lp").toString());
+            }
+
+            cplex.setParam(IloCplex.Param.MIP.Tolerances.MIPGap, 0.05); // 5% MIP Gap
+
+            Progress progress = new Progress(0.05);
+            cplex.use(progress);
+
+            Instant now = Instant.now();
+            boolean solved = cplex.solve();
+            System.out.printf("Problem solved in %s with %d nodes explored (peak RSS %d MB, %s)\n",
+                    Duration.between(now, Instant.now()), cplex.getNnodes(), Usage.peakRss(), progress);
+
+            if (solved) {
+                solution = model.disaggregate(cplex, this.problem);
+
+                writer.println();
+                writer.println(" Solution Status = " + cplex.getStatus());
+                writer.println();
+
+                writer.println();
+                writer.println(" gap = " + cplex.getMIPRelativeGap());
+                writer.println();
+
+                writer.println();
+                writer.println(" cost = " + cplex.getObjValue());
+                writer.println();
+
+                writer.println();
+                writer.println(" disaggregated cost = " + solution.getCost());
+                writer.println();
+
+                writer.println();
+                writer.println(solution);
+                writer.println();
+            } else {
+                System.err.printf("Solve failed: %s\n", cplex.getStatus());
+            }
+        } catch (IloException e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        writer.flush();
+        writer.close();
+
+        // write the result file
+        if (this.output != null) {
+            try {
+                Files.write(this.output.resolve("grouped-result.txt"), result.toString().getBytes());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        return solution;
+    }
+}
@@ -0,0 +1,1061 @@
+package home.parham.roadtomsc.exact.grouped.model;
+
+import home.parham.roadtomsc.exact.Config;
+import home.parham.roadtomsc.exact.Extractor;
+import home.parham.roadtomsc.problem.Solution;
+import ilog.concert.*;
+import ilog.cplex.IloCplex;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.function.IntPredicate;
+
+/**
+ * Model creates variables, objective and constraints of the grouped mathematical
+ * model of our problem in CPLEX. identical chains are in the same class and the variables of a class
+ * count its chains instead of having a copy for each of them, the class is represented by its first chain
+ * so the variables are indexed by the VNFs and virtual links of the representative chains.
+ * radius, manager to node support and single manager of each chain only hold in aggregate in this model,
+ * the disaggregation drops the chains that cannot be separated from the counts.
+ */
+public class Model {
+    /**
+     * modeler is a CPLEX model builder.
+     */
+    private final IloModeler modeler;
+
+    /**
+     * Configuration instance that provides problem parameters.
+     */
+    private final Config cfg;
+
+    /**
+     * names indicates that variables and constraints have names.
+     */
+    private final boolean names;
+
+    /**
+     * the number of accepted chains of the _c_th class.
+     *
+     * x[c]
+     * .lp format: x (class number)
+     */
+    private IloIntVar[] x;
+
+    /**
+     * the number of VNF instances of type _k_ that are used in server _w_.
+     * it is null when server _w_ is not a candidate host of type _k_.
+     *
+     * y[w][k]
+     * .lp format: y (physical node, type)
+     */
+    private IloIntVar[][] y;
+
+    /**
+     * the number of VNFMs that are used in server _w_.
+     * it is null when server _w_ has no capacity for a VNFM.
+     *
+     * yh[w]
+     * .lp format: yh (physical node)
+     */
+    private IloIntVar[] yHat;
+
+    /**
+     * the number of chains of the class whose VNF node _v_ is served in the server _w_.
+     * it is null when _v_ is not in a representative chain or server _w_ is not a candidate host of its type.
+     *
+     * z[w][v]
+     * .lp format: z (type, physical node, class number _ node number in the chain)
+     */
+    private IloIntVar[][] z;
+
+    /**
+     * the number of chains of the _c_th class that are assigned to VNFM on server _w_.
+     *
+     * zh[c][w]
+     * .lp format: zh (class number, physical node)
+     */
+    private IloIntVar[][] zHat;
+
+    /**
+     * the number of chains of the class whose virtual link _(u, v)_ is routed on the physical link _e_.
+     *
+     * tau[e][uv]
+     * .lp format: tau (physical link source, physical link destination, class number _ link number in the chain)
+     */
+    private IloIntVar[][] tau;
+
+    /**
+     * the number of chains of the class whose management of VNF node _v_ is routed on the physical link _e_.
+     *
+     * tauHat[e][v]
+     * .lp format: tauh (physical link source, physical link destination, class number _ node number in the chain)
+     */
+    private IloIntVar[][] tauHat;
+
+    /**
+     *
+     * @param pModeler CPLEX modeler instance
+     * @param pCfg configuration instance
+     * @param pNames creates variables and constraints with names
+     */
+    public Model(final IloModeler pModeler, final Config pCfg, final boolean pNames) {
+        this.modeler = pModeler;
+        this.cfg = pCfg;
+        this.names = pNames;
+    }
+
+    /**
+     * Formats name of a variable or a constraint when names are enabled.
+     *
+     * @return name or null that lets CPLEX use its default name
+     */
+    private String name(String format, Object... args) {
+        if (!this.names) {
+            return null;
+        }
+        return String.format(format, args);
+    }
+
+    /**
+     * @return the representative chain of the _c_th class
+     */
+    private int representative(int c) {
+        return this.cfg.getClassChains(c)[0];
+    }
+
+    /**
+     * @return the number of chains in the _c_th class
+     */
+    private int multiplicity(int c) {
+        return this.cfg.getClassChains(c).length;
+    }
+
+    /**
+     * Adds model variables.
+     *
+     * @return Model
+     */
+    public Model variables() throws IloException {
+        xVariable();
+        yVariable();
+        zVariable();
+        yHatVariable();
+        zHatVariable();
+
+        tauTauHatVariable();
+
+        return this;
+    }
+
+    private void xVariable() throws IloException {
+        // x
+        this.x = new IloIntVar[this.cfg.getClassCount()];
+        for (int c = 0; c < this.cfg.getClassCount(); c++) {
+            this.x[c] = this.modeler.intVar(0, this.multiplicity(c), name("x(%d)", c));
+        }
+    }
+
+    private void yVariable() throws IloException {
+        // y
+        this.y = new IloIntVar[this.cfg.getW()][this.cfg.getF()];
+        for (int i = 0; i < this.cfg.getW(); i++) {
+            for (int j = 0; j < this.cfg.getF(); j++) {
+                if (this.cfg.isCandidate(j, i)) {
+                    this.y[i][j] = this.modeler.intVar(0, this.cfg.getInstanceBound(i, j), name("y(%d,%d)", i, j));
+                }
+            }
+        }
+    }
+
+    private void yHatVariable() throws IloException {
+        // yHat
+        this.yHat = new IloIntVar[this.cfg.getW()];
+        for (int i = 0; i < this.cfg.getW(); i++) {
+            if (this.cfg.getVnfmBound(i) > 0) {
+                this.yHat[i] = this.modeler.intVar(0, this.cfg.getVnfmBound(i), name("yh(%d)", i));
+            }
+        }
+    }
+
+    private void zVariable() throws IloException {
+        // z
+        this.z = new IloIntVar[this.cfg.getW()][this.cfg.getV()];
+        for (int c = 0; c < this.cfg.getClassCount(); c++) {
+            int h = this.representative(c);
+            for (int v = this.cfg.getVnfOffset(h); v < this.cfg.getVnfOffset(h + 1); v++) {
+                int i = this.cfg.getVnfType(v);
+                for (int j = 0; j < this.cfg.getW(); j++) {
+                    if (this.cfg.isCandidate(i, j)) {
+                        this.z[j][v] = this.modeler.intVar(0, this.multiplicity(c),
+                                name("z(%d,%d,%d_%d)", i, j, c, v - this.cfg.getVnfOffset(h)));
+                    }
+                }
+            }
+        }
+    }
+
+    private void zHatVariable() throws IloException {
+        // zHat
+        this.zHat = new IloIntVar[this.cfg.getClassCount()][this.cfg.getW()];
+        for (int c = 0; c < this.cfg.getClassCount(); c++) {
+            int h = this.representative(c);
+            for (int j = 0; j < this.cfg.getW(); j++) {
+                // managers of the chains with manageable VNFs need a VNFM
+                if (this.yHat[j] == null && this.cfg.getManageableCount(h) > 0) {
+                    continue;
+                }
+
+                // manageable VNFs of the chain must be able to reach the manager within the radius
+                boolean reachable = true;
+                for (int v = this.cfg.getVnfOffset(h); v < this.cfg.getVnfOffset(h + 1) && reachable; v++) {
+                    if (this.cfg.isVnfManageable(v)) {
+                        int hops = this.cfg.getTypeHops(this.cfg.getVnfType(v), j);
+                        reachable = hops != -1 && hops <= this.cfg.getVnfmRadius();
+                    }
+                }
+                if (reachable) {
+                    this.zHat[c][j] = this.modeler.intVar(0, this.multiplicity(c), name("zh(%d,%d)", c, j));
+                }
+            }
+        }
+    }
+
+    private void tauTauHatVariable() throws IloException {
+        // tau, tauHat
+        this.tau = new IloIntVar[this.cfg.getLinks().size()][this.cfg.getU()];
+        this.tauHat = new IloIntVar[this.cfg.getLinks().size()][this.cfg.getV()];
+        for (int e = 0; e < this.cfg.getLinks().size(); e++) {
+            int i = this.cfg.getLinks().get(e).getSource();
+            int j = this.cfg.getLinks().get(e).getDestination();
+
+            for (int c = 0; c < this.cfg.getClassCount(); c++) {
+                int h = this.representative(c);
+
+                for (int uv = this.cfg.getVirtualLinkOffset(h); uv < this.cfg.getVirtualLinkOffset(h + 1); uv++) {
+                    this.tau[e][uv] = this.modeler.intVar(0, this.multiplicity(c),
+                            name("tau(%d,%d,%d_%d)", i, j, c, uv - this.cfg.getVirtualLinkOffset(h)));
+                }
+
+                // management routes only use the links that are reachable from a candidate host within the radius
+                for (int v = this.cfg.getVnfOffset(h); v < this.cfg.getVnfOffset(h + 1); v++) {
+                    int hops = this.cfg.getTypeHops(this.cfg.getVnfType(v), i);
+                    if (this.cfg.isVnfManageable(v) && hops != -1 && hops < this.cfg.getVnfmRadius()) {
+                        this.tauHat[e][v] = this.modeler.intVar(0, this.multiplicity(c),
+                                name("tauh(%d,%d,%d_%d)", i, j, c, v - this.cfg.getVnfOffset(h)));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds objective function
+     * @throws IloException
+     * @return Model
+     */
+    public Model objective() throws IloException {
+        IloLinearNumExpr expr = this.modeler.linearNumExpr();
+        for (int c = 0; c < this.cfg.getClassCount(); c++) {
+            expr.addTerm(this.cfg.getChains().get(this.representative(c)).getCost(), this.x[c]);
+        }
+        for (int i = 0; i < this.cfg.getW(); i++) {
+            if (this.yHat[i] != null) {
+                expr.addTerm(-this.cfg.getVnfmLicenseFee(), this.yHat[i]);
+            }
+        }
+        this.modeler.addMaximize(expr);
+
+        return this;
+    }
+
+    /**
+     * Adds model constraints
+     * @return Model
+     * @throws IloException
+     */
+    public Model constraints() throws IloException {
+        this.nodeMemoryCPUConstraint();
+        this.servicePlaceConstraint();
+        this.serviceConstraint();
+        this.manageConstraint();
+        this.managePlaceConstraint();
+        this.managerToNodeSupportConstraint();
+
+        this.flowConservation();
+        this.managementFlowConservation();
+
+        this.linkBandwidthConstraint();
+        this.radiusConstraint();
+
+        return this;
+    }
+
+    /**
+     * Node Memory/CPU Constraint
+     * @throws IloException
+     */
+    private void nodeMemoryCPUConstraint() throws IloException {
+        for (int i = 0; i < this.cfg.getW(); i++) {
+            if (this.cfg.isForwarding(i)) {
+                continue;
+            }
+
+            IloLinearNumExpr ramConstraint = this.modeler.linearNumExpr();
+            IloLinearNumExpr cpuConstraint = this.modeler.linearNumExpr();
+            boolean ram = false;
+            boolean cpu = false;
+
+            if (this.yHat[i] != null) {
+                ramConstraint.addTerm(this.cfg.getVnfmRam(), this.yHat[i]); // VNFMs ram
+                cpuConstraint.addTerm(this.cfg.getVnfmCores(), this.yHat[i]); // VNFMs cpu
+                ram = this.cfg.getVnfmRam() > 0;
+                cpu = this.cfg.getVnfmCores() > 0;
+            }
+
+            for (int j = 0; j < this.cfg.getF(); j++) {
+                if (this.y[i][j] == null) {
+                    continue;
+                }
+                if (this.cfg.getTypeRam(j) > 0) {
+                    ramConstraint.addTerm(this.cfg.getTypeRam(j), this.y[i][j]); // instance ram
+                    ram = true;
+                }
+                if (this.cfg.getTypeCores(j) > 0) {
+                    cpuConstraint.addTerm(this.cfg.getTypeCores(j), this.y[i][j]); // instance cpu
+                    cpu = true;
+                }
+            }
+
+            if (cpu) {
+                this.modeler.addLe(cpuConstraint, this.cfg.getNodeCores(i), name("node_cpu_constraint_node{%d}", i));
+            }
+            if (ram) {
+                this.modeler.addLe(ramConstraint, this.cfg.getNodeRam(i), name("node_memory_constraint_node{%d}", i));
+            }
+        }
+    }
+
+    /**
+     * Service Place Constraint, each chain of the class uses its own instance
+     * @throws IloException
+     */
+    private void servicePlaceConstraint() throws IloException {
+        for (int j = 0; j < this.cfg.getW(); j++) {
+            if (this.cfg.isForwarding(j)) {
+                continue;
+            }
+
+            IloLinearIntExpr[] constraints = new IloLinearIntExpr[this.cfg.getF()];
+            for (int i = 0; i < this.cfg.getF(); i++) {
+                constraints[i] = this.modeler.linearIntExpr();
+            }
+
+            for (int v = 0; v < this.cfg.getV(); v++) {
+                if (this.z[j][v] != null) {
+                    constraints[this.cfg.getVnfType(v)].addTerm(1, this.z[j][v]);
+                }
+            }
+
+            for (int i = 0; i < this.cfg.getF(); i++) {
+                if (this.y[j][i] == null) {
+                    continue;
+                }
+                this.modeler.addLe(constraints[i], this.y[j][i], name("service_place_constraint_type{%d}_node{%d}", i, j));
+            }
+        }
+    }
+
+    /**
+     * Service Constraint, each VNF of the accepted chains of the class is served once
+     * @throws IloException
+     */
+    private void serviceConstraint() throws IloException {
+        for (int c = 0; c < this.cfg.getClassCount(); c++) {
+            int h = this.representative(c);
+            for (int v = this.cfg.getVnfOffset(h); v < this.cfg.getVnfOffset(h + 1); v++) {
+                IloLinearIntExpr constraint = this.modeler.linearIntExpr();
+                for (int j = 0; j < this.cfg.getW(); j++) {
+                    if (this.z[j][v] != null) {
+                        constraint.addTerm(1, this.z[j][v]);
+                    }
+                }
+                this.modeler.addEq(constraint, this.x[c], name("service_constraint_class{%d}_vnf{%d}", c, v - this.cfg.getVnfOffset(h)));
+            }
+        }
+    }
+
+    /**
+     * Manage Constraint
+     * @throws IloException
+     */
+    private void manageConstraint() throws IloException {
+        for (int c = 0; c < this.cfg.getClassCount(); c++) {
+            IloLinearIntExpr constraint = this.modeler.linearIntExpr();
+            for (int j = 0; j < this.cfg.getW(); j++) {
+                if (this.zHat[c][j] != null) {
+                    constraint.addTerm(1, this.zHat[c][j]);
+                }
+            }
+            this.modeler.addEq(constraint, this.x[c], name("manage_constraint_class{%d}", c));
+        }
+    }
+
+    /**
+     * Manage Place Constraint + Manager Capacity
+     * @throws IloException
+     */
+    private void managePlaceConstraint() throws IloException {
+        for (int j = 0; j < this.cfg.getW(); j++) {
+            if (this.yHat[j] == null) {
+                continue;
+            }
+
+            IloLinearIntExpr constraint = this.modeler.linearIntExpr();
+            for (int c = 0; c < this.cfg.getClassCount(); c++) {
+                if (this.zHat[c][j] != null) {
+                    constraint.addTerm(this.cfg.getManageableCount(this.representative(c)), this.zHat[c][j]);
+                }
+            }
+            constraint.addTerm(-this.cfg.getVnfmCapacity(), this.yHat[j]);
+            this.modeler.addLe(constraint, 0, name("manage_place_constraint_node{%d}", j));
+        }
+    }
+
+    /**
+     * Manager To Node Support Constraint in aggregate, the chains that have VNF node _v_ on physical node _j_
+     * cannot be managed by the forbidden managers of _j_ so they are not more than the accepted chains minus
+     * the chains that are managed by them.
+     * @throws IloException
+     */
+    private void managerToNodeSupportConstraint() throws IloException {
+        for (int c = 0; c < this.cfg.getClassCount(); c++) {
+            int h = this.representative(c);
+            for (int v = this.cfg.getVnfOffset(h); v < this.cfg.getVnfOffset(h + 1); v++) {
+                if (!this.cfg.isVnfManageable(v)) {
+                    continue;
+                }
+                for (int j = 0; j < this.cfg.getW(); j++) {
+                    if (this.z[j][v] == null || this.cfg.getForbiddenManagers(j).length == 0) {
+                        continue;
+                    }
+
+                    IloLinearIntExpr constraint = this.modeler.linearIntExpr();
+                    constraint.addTerm(1, this.z[j][v]);
+                    for (int n : this.cfg.getForbiddenManagers(j)) {
+                        if (this.zHat[c][n] != null) {
+                            constraint.addTerm(1, this.zHat[c][n]);
+                        }
+                    }
+                    this.modeler.addLe(constraint, this.x[c],
+                            name("manager_to_node_support_constraint_class{%d}_vnf{%d}_node{%d}", c, v - this.cfg.getVnfOffset(h), j));
+                }
+            }
+        }
+    }
+
+    /**
+     * Flow conservation
+     * @throws IloException
+     */
+    private void flowConservation() throws IloException {
+        for (int c = 0; c < this.cfg.getClassCount(); c++) {
+            int h = this.representative(c);
+            for (int uv = this.cfg.getVirtualLinkOffset(h); uv < this.cfg.getVirtualLinkOffset(h + 1); uv++) {
+                int virtualSource = this.cfg.getVirtualLinkSource(uv);
+                int virtualDestination = this.cfg.getVirtualLinkDestination(uv);
+
+                for (int i = 0; i < this.cfg.getW(); i++) {
+                    IloLinearIntExpr linkConstraint = this.modeler.linearIntExpr();
+                    IloLinearIntExpr nodeConstraint = this.modeler.linearIntExpr();
+
+                    for (int p = this.cfg.getOutgoing().begin(i); p < this.cfg.getOutgoing().end(i); p++) {
+                        linkConstraint.addTerm(1, this.tau[this.cfg.getOutgoing().link(p)][uv]);
+                    }
+                    for (int p = this.cfg.getIncoming().begin(i); p < this.cfg.getIncoming().end(i); p++) {
+                        linkConstraint.addTerm(-1, this.tau[this.cfg.getIncoming().link(p)][uv]);
+                    }
+
+                    if (this.z[i][virtualSource] != null) {
+                        nodeConstraint.addTerm(1, this.z[i][virtualSource]);
+                    }
+                    if (this.z[i][virtualDestination] != null) {
+                        nodeConstraint.addTerm(-1, this.z[i][virtualDestination]);
+                    }
+
+                    this.modeler.addEq(linkConstraint, nodeConstraint, name("flow_conservation"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Management flow conservation
+     * @throws IloException
+     */
+    private void managementFlowConservation() throws IloException {
+        for (int c = 0; c < this.cfg.getClassCount(); c++) {
+            int h = this.representative(c);
+            for (int v = this.cfg.getVnfOffset(h); v < this.cfg.getVnfOffset(h + 1); v++) {
+                if (!this.cfg.isVnfManageable(v)) {
+                    continue;
+                }
+
+                for (int i = 0; i < this.cfg.getW(); i++) {
+                    IloLinearIntExpr linkConstraint = this.modeler.linearIntExpr();
+                    IloLinearIntExpr nodeConstraint = this.modeler.linearIntExpr();
+
+                    for (int p = this.cfg.getOutgoing().begin(i); p < this.cfg.getOutgoing().end(i); p++) {
+                        if (this.tauHat[this.cfg.getOutgoing().link(p)][v] != null) {
+                            linkConstraint.addTerm(1, this.tauHat[this.cfg.getOutgoing().link(p)][v]);
+                        }
+                    }
+                    for (int p = this.cfg.getIncoming().begin(i); p < this.cfg.getIncoming().end(i); p++) {
+                        if (this.tauHat[this.cfg.getIncoming().link(p)][v] != null) {
+                            linkConstraint.addTerm(-1, this.tauHat[this.cfg.getIncoming().link(p)][v]);
+                        }
+                    }
+
+                    if (this.z[i][v] != null) {
+                        nodeConstraint.addTerm(1, this.z[i][v]);
+                    }
+                    if (this.zHat[c][i] != null) {
+                        nodeConstraint.addTerm(-1, this.zHat[c][i]);
+                    }
+
+                    if (!linkConstraint.linearIterator().hasNext() && !nodeConstraint.linearIterator().hasNext()) {
+                        continue;
+                    }
+
+                    this.modeler.addEq(linkConstraint, nodeConstraint, name("management_flow_conservation"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Link Bandwidth Constraint
+     * @throws IloException
+     */
+    private void linkBandwidthConstraint() throws IloException {
+        for (int e = 0; e < this.cfg.getLinks().size(); e++) {
+            IloLinearIntExpr constraint = this.modeler.linearIntExpr();
+
+            for (int uv = 0; uv < this.cfg.getU(); uv++) {
+                if (this.tau[e][uv] != null) {
+                    constraint.addTerm(this.cfg.getVirtualLinkBandwidth(uv), this.tau[e][uv]);
+                }
+            }
+            for (int v = 0; v < this.cfg.getV(); v++) {
+                if (this.tauHat[e][v] != null) {
+                    constraint.addTerm(this.cfg.getVnfmBandwidth(), this.tauHat[e][v]);
+                }
+            }
+
+            this.modeler.addLe(constraint, this.cfg.getLinks().get(e).getBandwidth(), name("link_bandwidth_constraint"));
+        }
+    }
+
+    /**
+     * Radius Constraint in aggregate, the management routes of the accepted chains of the class
+     * are not longer than the radius on average.
+     * @throws IloException
+     */
+    private void radiusConstraint() throws IloException {
+        for (int c = 0; c < this.cfg.getClassCount(); c++) {
+            int h = this.representative(c);
+            for (int v = this.cfg.getVnfOffset(h); v < this.cfg.getVnfOffset(h + 1); v++) {
+                if (!this.cfg.isVnfManageable(v)) {
+                    continue;
+                }
+
+                IloLinearIntExpr constraint = this.modeler.linearIntExpr();
+                for (int e = 0; e < this.cfg.getLinks().size(); e++) {
+                    if (this.tauHat[e][v] != null) {
+                        constraint.addTerm(1, this.tauHat[e][v]);
+                    }
+                }
+                constraint.addTerm(-this.cfg.getVnfmRadius(), this.x[c]);
+
+                this.modeler.addLe(constraint, 0, name("management_radius_constraint"));
+            }
+        }
+    }
+
+    /**
+     * Disaggregates the counts into the chains of each class. the routes of the virtual links are separated
+     * from the tau counts in the order of the virtual links, the manager of each chain is one of the nodes that
+     * still have zHat count and can manage all of its VNFs and the management routes are the shortest paths
+     * within the radius on the links that still have tauHat count. a chain is tried with the search for its hosts
+     * starting from each physical node and the counts of a failed try are given back. the chains that have hosts
+     * and routes but no manager in the counts are then managed on the resources that the other chains leave and
+     * the chains that still cannot be separated are rejected, so the solution is feasible.
+     *
+     * @param cplex CPLEX instance that solved this model
+     * @param problem problem configuration that the solution refers to
+     * @return solution with an entry for each chain
+     */
+    public Solution disaggregate(IloCplex cplex, home.parham.roadtomsc.problem.Config problem) throws IloException {
+        return disaggregate(problem,
+                round(Extractor.values(cplex, this.x)),
+                round(Extractor.values(cplex, this.z)),
+                round(Extractor.values(cplex, this.zHat)),
+                round(Extractor.values(cplex, this.tau)),
+                round(Extractor.values(cplex, this.tauHat)));
+    }
+
+    /**
+     * Disaggregates the given counts that have the same indices as the variables of this model,
+     * the counts are consumed by the accepted chains.
+     *
+     * @param problem problem configuration that the solution refers to
+     * @return solution with an entry for each chain
+     */
+    public Solution disaggregate(home.parham.roadtomsc.problem.Config problem,
+                                 int[] x, int[][] z, int[][] zHat, int[][] tau, int[][] tauHat) {
+        int[] hosts = new int[this.cfg.getV()];
+        Arrays.fill(hosts, -1);
+        int[] managers = new int[this.cfg.getT()];
+        Arrays.fill(managers, -1);
+        int[][] routes = new int[this.cfg.getU()][];
+        Arrays.fill(routes, new int[0]);
+        int[][] managementRoutes = new int[this.cfg.getV()][];
+
+        int[] managed = new int[this.cfg.getW()];
+        int revenue = 0;
+
+        for (int c = 0; c < this.cfg.getClassCount(); c++) {
+            int r = this.representative(c);
+            int vnfOffset = this.cfg.getVnfOffset(r);
+            int linkOffset = this.cfg.getVirtualLinkOffset(r);
+            int nodes = this.cfg.getVnfOffset(r + 1) - vnfOffset;
+            int links = this.cfg.getVirtualLinkOffset(r + 1) - linkOffset;
+
+            for (int t = 0; t < x[c]; t++) {
+                int h = this.cfg.getClassChains(c)[t];
+
+                // each attempt starts the search for the hosts from a different physical node
+                // and the counts of a failed attempt are given back for the next one
+                int manager = -1;
+                int[] chainHosts = null;
+                int[][] chainRoutes = null;
+                int[][] chainManagementRoutes = null;
+                for (int attempt = 0; attempt < this.cfg.getW() && manager == -1; attempt++) {
+                    chainHosts = new int[nodes];
+                    chainRoutes = new int[links][];
+                    boolean separated = this.place(z, tau, vnfOffset, linkOffset, attempt, chainHosts, chainRoutes);
+
+                    // manager and management routes of the chain
+                    for (int n = 0; n < this.cfg.getW() && separated && manager == -1; n++) {
+                        if (zHat[c][n] == 0 || !this.manages(chainHosts, vnfOffset, n)) {
+                            continue;
+                        }
+                        chainManagementRoutes = this.manage(tauHat, vnfOffset, chainHosts, n);
+                        if (chainManagementRoutes != null) {
+                            manager = n;
+                        }
+                    }
+
+                    if (manager == -1) {
+                        this.restore(z, tau, chainHosts, chainRoutes, vnfOffset, linkOffset);
+                    }
+                }
+                if (manager == -1) {
+                    continue;
+                }
+                zHat[c][manager]--;
+
+                int v = this.cfg.getVnfOffset(h);
+                int u = this.cfg.getVirtualLinkOffset(h);
+                System.arraycopy(chainHosts, 0, hosts, v, nodes);
+                System.arraycopy(chainRoutes, 0, routes, u, links);
+                System.arraycopy(chainManagementRoutes, 0, managementRoutes, v, nodes);
+                managers[h] = manager;
+                managed[manager] += this.cfg.getManageableCount(h);
+                revenue += this.cfg.getChains().get(h).getCost();
+            }
+        }
+
+        // the hosts and the managers of the rejected chains cannot be paired with the counts, their hosts and routes
+        // still come from the counts and they are managed on the resources that the accepted chains leave
+        int[] cores = new int[this.cfg.getW()];
+        int[] ram = new int[this.cfg.getW()];
+        int[] bandwidth = new int[this.cfg.getLinks().size()];
+        for (int h = 0; h < this.cfg.getT(); h++) {
+            if (managers[h] != -1) {
+                int v = this.cfg.getVnfOffset(h);
+                int u = this.cfg.getVirtualLinkOffset(h);
+                this.use(1, v, u, Arrays.copyOfRange(hosts, v, this.cfg.getVnfOffset(h + 1)),
+                        Arrays.copyOfRange(routes, u, this.cfg.getVirtualLinkOffset(h + 1)), cores, ram, bandwidth);
+                for (int k = v; k < this.cfg.getVnfOffset(h + 1); k++) {
+                    for (int e : managementRoutes[k] != null ? managementRoutes[k] : new int[0]) {
+                        bandwidth[e] += this.cfg.getVnfmBandwidth();
+                    }
+                }
+            }
+        }
+        for (int c = 0; c < this.cfg.getClassCount(); c++) {
+            int r = this.representative(c);
+            int vnfOffset = this.cfg.getVnfOffset(r);
+            int linkOffset = this.cfg.getVirtualLinkOffset(r);
+            int nodes = this.cfg.getVnfOffset(r + 1) - vnfOffset;
+            int links = this.cfg.getVirtualLinkOffset(r + 1) - linkOffset;
+
+            for (int t = 0; t < x[c]; t++) {
+                int h = this.cfg.getClassChains(c)[t];
+                for (int attempt = 0; attempt < this.cfg.getW() && managers[h] == -1; attempt++) {
+                    int[] chainHosts = new int[nodes];
+                    int[][] chainRoutes = new int[links][];
+                    if (!this.place(z, tau, vnfOffset, linkOffset, attempt, chainHosts, chainRoutes)) {
+                        this.restore(z, tau, chainHosts, chainRoutes, vnfOffset, linkOffset);
+                        continue;
+                    }
+
+                    this.use(1, vnfOffset, linkOffset, chainHosts, chainRoutes, cores, ram, bandwidth);
+                    for (int n = 0; n < this.cfg.getW() && managers[h] == -1; n++) {
+                        // managers of the chains with manageable VNFs need a VNFM
+                        if (this.cfg.getManageableCount(r) > 0 && this.cfg.getVnfmBound(n) == 0
+                                || !this.manages(chainHosts, vnfOffset, n)) {
+                            continue;
+                        }
+                        managed[n] += this.cfg.getManageableCount(r);
+                        int[][] chainManagementRoutes = null;
+                        if (Config.vnfms(managed[n], this.cfg.getVnfmCapacity()) <= this.cfg.getVnfmBound(n)
+                                && this.fits(cores, ram, bandwidth, managed)) {
+                            chainManagementRoutes = this.residualManage(bandwidth, vnfOffset, chainHosts, n);
+                        }
+                        if (chainManagementRoutes == null) {
+                            managed[n] -= this.cfg.getManageableCount(r);
+                            continue;
+                        }
+
+                        int v = this.cfg.getVnfOffset(h);
+                        int u = this.cfg.getVirtualLinkOffset(h);
+                        System.arraycopy(chainHosts, 0, hosts, v, nodes);
+                        System.arraycopy(chainRoutes, 0, routes, u, links);
+                        System.arraycopy(chainManagementRoutes, 0, managementRoutes, v, nodes);
+                        managers[h] = n;
+                        revenue += this.cfg.getChains().get(h).getCost();
+                    }
+                    if (managers[h] == -1) {
+                        this.use(-1, vnfOffset, linkOffset, chainHosts, chainRoutes, cores, ram, bandwidth);
+                        this.restore(z, tau, chainHosts, chainRoutes, vnfOffset, linkOffset);
+                    }
+                }
+            }
+        }
+
+        int vnfmInstances = 0;
+        for (int i = 0; i < this.cfg.getW(); i++) {
+            vnfmInstances += Config.vnfms(managed[i], this.cfg.getVnfmCapacity());
+        }
+
+        return new Solution(problem, revenue - vnfmInstances * this.cfg.getVnfmLicenseFee(),
+                hosts, managers, routes, managementRoutes, vnfmInstances);
+    }
+
+    private static int[] round(double[] values) {
+        return round(new double[][]{values})[0];
+    }
+
+    private static int[][] round(double[][] values) {
+        int[][] counts = new int[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            counts[i] = new int[values[i].length];
+            for (int j = 0; j < values[i].length; j++) {
+                counts[i][j] = (int) Math.round(values[i][j]);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Takes the hosts and routes of a chain from the counts, the hosts of the VNFs without incoming virtual link
+     * come from the counts and the others are the end of the route of their incoming virtual link.
+     *
+     * @param start physical node that the search for the hosts starts from
+     * @param hosts host of each VNF of the chain or -1 when it is not taken
+     * @param routes route of each virtual link of the chain or null when it is not taken
+     * @return that all the hosts and routes are taken
+     */
+    private boolean place(int[][] z, int[][] tau, int vnfOffset, int linkOffset, int start, int[] hosts, int[][] routes) {
+        Arrays.fill(hosts, -1);
+        for (int l = 0; l < routes.length; l++) {
+            int uv = linkOffset + l;
+            int s = this.cfg.getVirtualLinkSource(uv) - vnfOffset;
+            int d = this.cfg.getVirtualLinkDestination(uv) - vnfOffset;
+            if (hosts[s] == -1) {
+                hosts[s] = this.take(z, vnfOffset + s, start);
+            }
+            routes[l] = hosts[s] == -1 ? null : this.walk(tau, uv, hosts[s], z, vnfOffset + d, hosts[d]);
+            if (routes[l] == null) {
+                return false;
+            }
+            int end = hosts[s];
+            for (int e : routes[l]) {
+                end = this.cfg.getLinks().get(e).getDestination();
+            }
+            hosts[d] = end;
+        }
+        for (int k = 0; k < hosts.length; k++) {
+            if (hosts[k] == -1) {
+                hosts[k] = this.take(z, vnfOffset + k, start);
+                if (hosts[k] == -1) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Takes the management routes of the manageable VNFs of a chain to physical node _n_ from the tauHat counts.
+     *
+     * @return management route of each VNF of the chain (null for the VNFs that are not manageable)
+     * or null when one of them cannot be routed and then no count is taken
+     */
+    private int[][] manage(int[][] tauHat, int vnfOffset, int[] hosts, int n) {
+        int[][] routes = new int[hosts.length][];
+        for (int k = 0; k < hosts.length; k++) {
+            if (!this.cfg.isVnfManageable(vnfOffset + k)) {
+                continue;
+            }
+            int v = vnfOffset + k;
+            routes[k] = this.path(e -> tauHat[e][v] > 0, hosts[k], n);
+            if (routes[k] == null) {
+                // gives back the counts of the routes of the other VNFs
+                for (int l = 0; l < k; l++) {
+                    for (int e : routes[l] != null ? routes[l] : new int[0]) {
+                        tauHat[e][vnfOffset + l]++;
+                    }
+                }
+                return null;
+            }
+            for (int e : routes[k]) {
+                tauHat[e][vnfOffset + k]--;
+            }
+        }
+        return routes;
+    }
+
+    /**
+     * Adds (sign is 1) or removes (sign is -1) the cores and ram of the VNFs and the bandwidth of the virtual links
+     * of a chain.
+     */
+    private void use(int sign, int vnfOffset, int linkOffset, int[] hosts, int[][] routes, int[] cores, int[] ram, int[] bandwidth) {
+        for (int k = 0; k < hosts.length; k++) {
+            cores[hosts[k]] += sign * this.cfg.getTypeCores(this.cfg.getVnfType(vnfOffset + k));
+            ram[hosts[k]] += sign * this.cfg.getTypeRam(this.cfg.getVnfType(vnfOffset + k));
+        }
+        for (int l = 0; l < routes.length; l++) {
+            for (int e : routes[l]) {
+                bandwidth[e] += sign * this.cfg.getVirtualLinkBandwidth(linkOffset + l);
+            }
+        }
+    }
+
+    /**
+     * @return that the VNFs, the VNFMs of the managed VNFs and the routes fit into the physical nodes and links
+     */
+    private boolean fits(int[] cores, int[] ram, int[] bandwidth, int[] managed) {
+        for (int i = 0; i < this.cfg.getW(); i++) {
+            int vnfms = Config.vnfms(managed[i], this.cfg.getVnfmCapacity());
+            if (cores[i] + vnfms * this.cfg.getVnfmCores() > this.cfg.getNodeCores(i)
+                    || ram[i] + vnfms * this.cfg.getVnfmRam() > this.cfg.getNodeRam(i)) {
+                return false;
+            }
+        }
+        for (int e = 0; e < this.cfg.getLinks().size(); e++) {
+            if (bandwidth[e] > this.cfg.getLinks().get(e).getBandwidth()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Routes the management of the manageable VNFs of a chain to physical node _n_ on the links that have
+     * enough residual bandwidth.
+     *
+     * @return management route of each VNF of the chain (null for the VNFs that are not manageable)
+     * or null when one of them cannot be routed and then no bandwidth is used
+     */
+    private int[][] residualManage(int[] bandwidth, int vnfOffset, int[] hosts, int n) {
+        int[][] routes = new int[hosts.length][];
+        for (int k = 0; k < hosts.length; k++) {
+            if (!this.cfg.isVnfManageable(vnfOffset + k)) {
+                continue;
+            }
+            routes[k] = this.path(e -> bandwidth[e] + this.cfg.getVnfmBandwidth() <= this.cfg.getLinks().get(e).getBandwidth(),
+                    hosts[k], n);
+            if (routes[k] == null) {
+                // gives back the bandwidth of the routes of the other VNFs
+                for (int l = 0; l < k; l++) {
+                    for (int e : routes[l] != null ? routes[l] : new int[0]) {
+                        bandwidth[e] -= this.cfg.getVnfmBandwidth();
+                    }
+                }
+                return null;
+            }
+            for (int e : routes[k]) {
+                bandwidth[e] += this.cfg.getVnfmBandwidth();
+            }
+        }
+        return routes;
+    }
+
+    /**
+     * Gives back the host and route counts that are taken for a chain.
+     */
+    private void restore(int[][] z, int[][] tau, int[] hosts, int[][] routes, int vnfOffset, int linkOffset) {
+        // each host is taken once, from the counts or at the end of its incoming route
+        for (int k = 0; k < hosts.length; k++) {
+            if (hosts[k] != -1) {
+                z[hosts[k]][vnfOffset + k]++;
+            }
+        }
+        for (int l = 0; l < routes.length; l++) {
+            for (int e : routes[l] != null ? routes[l] : new int[0]) {
+                tau[e][linkOffset + l]++;
+            }
+        }
+    }
+
+    /**
+     * Takes a host of VNF node _v_ from the counts, the physical nodes are checked from the start node.
+     *
+     * @return physical node or -1 when there is no count left
+     */
+    private int take(int[][] z, int v, int start) {
+        for (int i = 0; i < this.cfg.getW(); i++) {
+            int j = (start + i) % this.cfg.getW();
+            if (z[j][v] > 0) {
+                z[j][v]--;
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Separates a route of virtual link _uv_ from its counts, the route starts from the source host and follows
+     * the links that have count until it reaches a host of the destination VNF that has count
+     * (or the given destination host when it is already known).
+     *
+     * @return links of the route or null when the route cannot be separated
+     */
+    private int[] walk(int[][] tau, int uv, int source, int[][] z, int destination, int host) {
+        int[] route = new int[this.cfg.getW()];
+        int length = 0;
+        boolean[] visited = new boolean[this.cfg.getW()];
+        for (int i = source; ; ) {
+            if (host == -1 ? z[i][destination] > 0 : i == host) {
+                if (host == -1) {
+                    z[i][destination]--;
+                }
+                return Arrays.copyOf(route, length);
+            }
+            visited[i] = true;
+
+            int next = -1;
+            for (int p = this.cfg.getOutgoing().begin(i); p < this.cfg.getOutgoing().end(i) && next == -1; p++) {
+                int e = this.cfg.getOutgoing().link(p);
+                if (tau[e][uv] > 0 && !visited[this.cfg.getOutgoing().neighbor(p)]) {
+                    next = p;
+                }
+            }
+            if (next == -1) {
+                // gives back the counts of the partial route
+                for (int k = 0; k < length; k++) {
+                    tau[route[k]][uv]++;
+                }
+                return null;
+            }
+
+            tau[this.cfg.getOutgoing().link(next)][uv]--;
+            route[length++] = this.cfg.getOutgoing().link(next);
+            i = this.cfg.getOutgoing().neighbor(next);
+        }
+    }
+
+    /**
+     * @return that physical node _n_ is not a forbidden manager of the hosts of the manageable VNFs
+     */
+    private boolean manages(int[] hosts, int offset, int n) {
+        for (int k = 0; k < hosts.length; k++) {
+            if (this.cfg.isVnfManageable(offset + k) && Arrays.binarySearch(this.cfg.getForbiddenManagers(hosts[k]), n) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Breadth first search on the usable links.
+     *
+     * @param usable indicates that a physical link can be used
+     * @return links of a shortest path from the source to the destination within the radius or null
+     */
+    private int[] path(IntPredicate usable, int source, int destination) {
+        int[] via = new int[this.cfg.getW()];
+        int[] hops = new int[this.cfg.getW()];
+        Arrays.fill(via, -2);
+        via[source] = -1;
+
+        Deque<Integer> queue = new ArrayDeque<>();
+        queue.add(source);
+        while (!queue.isEmpty() && via[destination] == -2) {
+            int i = queue.poll();
+            if (hops[i] == this.cfg.getVnfmRadius()) {
+                continue;
+            }
+            for (int p = this.cfg.getOutgoing().begin(i); p < this.cfg.getOutgoing().end(i); p++) {
+                int j = this.cfg.getOutgoing().neighbor(p);
+                if (via[j] != -2 || !usable.test(this.cfg.getOutgoing().link(p))) {
+                    continue;
+                }
+                via[j] = this.cfg.getOutgoing().link(p);
+                hops[j] = hops[i] + 1;
+                queue.add(j);
+            }
+        }
+        if (via[destination] == -2) {
+            return null;
+        }
+
+        int[] path = new int[hops[destination]];
+        for (int j = destination, k = path.length - 1; via[j] != -1; j = this.cfg.getLinks().get(via[j]).getSource(), k--) {
+            path[k] = via[j];
+        }
+        return path;
+    }
+
+    public IloIntVar[] getX() {
+        return x;
+    }
+
+    public IloIntVar[][] getY() {
+        return y;
+    }
+
+    public IloIntVar[] getyHat() {
+        return yHat;
+    }
+
+    public IloIntVar[][] getZ() {
+        return z;
+    }
+
+    public IloIntVar[][] getzHat() {
+        return zHat;
+    }
+
+    public IloIntVar[][] getTau() {
+        return tau;
+    }
+
+    public IloIntVar[][] getTauHat() {
+        return tauHat;
+    }
+}
@@ -13,8 +13,14 @@
 
 package home.parham.roadtomsc.exact.joint;
 
+import home.parham.roadtomsc.domain.Chain;
 import home.parham.roadtomsc.domain.Link;
 import home.parham.roadtomsc.exact.Config;
+import home.parham.roadtomsc.exact.Environment;
+import home.parham.roadtomsc.exact.Extractor;
+import home.parham.roadtomsc.exact.Pool;
+import home.parham.roadtomsc.exact.Progress;
+import home.parham.roadtomsc.exact.Usage;
 import home.parham.roadtomsc.exact.joint.model.Model;
 import home.parham.roadtomsc.problem.Method;
 import home.parham.roadtomsc.problem.Solution;
@@ -23,44 +29,201 @@ import ilog.cplex.IloCplex;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 
 public class Solver implements Method {
     private Config cfg;
 
+    /**
+     * problem configuration that the solutions refer to
+     */
+    private home.parham.roadtomsc.problem.Config problem;
+
+    /**
+     * export indicates that the model is built with names and exported into a .lp file of the output directory
+     */
+    private boolean export;
+
+    /**
+     * pool provides the CPLEX instances
+     */
+    private Pool pool;
+
+    /**
+     * output is the directory that the result file and the exported models are written into,
+     * nothing is written when it is null
+     */
+    private Path output;
+
+    /**
+     * threads is the number of threads that CPLEX uses, zero lets CPLEX decide
+     */
+    private int threads;
+
+    /**
+     * start is a solution of the same problem that is given to CPLEX as a MIP start
+     */
+    private Solution start;
+
+    /**
+     * hint indicates that the start solution also guides the search, the branches towards it are explored first
+     */
+    private boolean hint;
+
+    /**
+     * aggregate indicates that the model uses the aggregated manager to node support constraints
+     */
+    private boolean aggregate;
+
+    /**
+     * name is the prefix of the result file and the exported model
+     */
+    private String name = "joint";
+
     public Solver(home.parham.roadtomsc.problem.Config cfg) {
-        this.cfg = Config.build(cfg);
+        this(cfg, Config.build(cfg));
+    }
+
+    /**
+     * @param problem problem configuration
+     * @param cfg configuration instance that is built from the problem configuration, it is shared between solvers
+     *            so presolve runs once for each problem
+     */
+    public Solver(home.parham.roadtomsc.problem.Config problem, Config cfg) {
+        this.problem = problem;
+        this.cfg = cfg;
+    }
+
+    /**
+     * @param export builds the model with names and exports it into a .lp file
+     */
+    public Solver export(boolean export) {
+        this.export = export;
+        return this;
+    }
+
+    /**
+     * @param pool pool that provides the CPLEX instances, without it each solve creates and ends its own instance
+     */
+    public Solver pool(Pool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * @param start solution of the same problem (heuristic, previous run or the disjoint solver) that is used as a MIP start
+     */
+    public Solver start(Solution start) {
+        this.start = start;
+        return this;
+    }
+
+    /**
+     * @param hint uses the start solution as branching hints
+     */
+    public Solver hint(boolean hint) {
+        this.hint = hint;
+        return this;
+    }
+
+    /**
+     * @param aggregate uses one manager to node support constraint for each chain and group of physical nodes
+     *                  with identical forbidden managers instead of one for each VNF and physical node
+     */
+    public Solver aggregate(boolean aggregate) {
+        this.aggregate = aggregate;
+        return this;
+    }
+
+    /**
+     * @param name prefix of the result file and the exported model, solves of the same problem
+     *             that are compared need different names
+     */
+    public Solver name(String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * @param output directory that the result file and the exported models are written into
+     */
+    public Solver output(Path output) {
+        this.output = output;
+        return this;
+    }
+
+    /**
+     * @param threads number of threads that CPLEX uses, zero lets CPLEX decide
+     */
+    public Solver threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    private Environment environment() throws IloException {
+        if (this.pool != null) {
+            return this.pool.acquire();
+        }
+        return Environment.open();
     }
 
     @Override
     public Solution solve() {
-        // create and setup the result file
-        PrintWriter writer;
-        try {
-            writer = new PrintWriter(Files.newBufferedWriter(Paths.get("joint-result.txt")));
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
-        }
+        // result is buffered and written into the output directory at the end
+        StringWriter result = new StringWriter();
+        PrintWriter writer = new PrintWriter(result);
+
+        Solution solution = null;
+        try (Environment env = this.environment()) {
+            IloCplex cplex = env.getCplex();
+            if (this.threads > 0) {
+                cplex.setParam(IloCplex.Param.Threads, this.threads);
+            }
 
-        try {
-            IloCplex cplex = new IloCplex();
+            Instant built = Instant.now();
+            Model model = new Model(cplex, cfg, this.export);
+            model.aggregate(this.aggregate).variables().objective().constraints();
+            System.out.printf("Model (%s) built in %s with %d rows and %d columns (peak heap %d MB, peak RSS %d MB)\n",
+                    this.aggregate ? "aggregated" : "disaggregated", Duration.between(built, Instant.now()),
+                    cplex.getNrows(), cplex.getNcols(), Usage.peakHeap(), Usage.peakRss());
 
-            Model model = new Model(cplex, cfg);
-            model.variables().objective().constraints();
+            if (this.export && this.output != null) {
+                cplex.exportModel(this.output.resolve(this.name + ".lp").toString());
+            }
 
-            cplex.exportModel("joint.lp");
+            if (this.start != null) {
+                model.start(cplex, this.start);
+                System.out.printf("MIP start added with cost %d\n", this.start.getCost());
+            }
+            if (this.start != null && this.hint) {
+                // there is no lower cutoff from the start cost because it turns the problem
+                // into an infeasible one when CPLEX cannot repair the start
+                model.hint(cplex, this.start);
+            }
 
             cplex.setParam(IloCplex.Param.MIP.Tolerances.MIPGap, 0.05); // 5% MIP Gap
 
+            Progress progress = new Progress(0.05);
+            cplex.use(progress);
+
             Instant now = Instant.now();
             boolean solved = cplex.solve();
-            System.out.printf("Problem solved in %s\n", Duration.between(now, Instant.now()));
+            System.out.printf("Problem solved in %s with %d nodes explored (peak RSS %d MB, %s)\n",
+                    Duration.between(now, Instant.now()), cplex.getNnodes(), Usage.peakRss(), progress);
 
             if (solved) {
+                // read each variable family with a single call
+                double[] x = Extractor.values(cplex, model.getX());
+                double[] yHat = Extractor.values(cplex, model.getyHat());
+                double[][] z = Extractor.values(cplex, model.getZ());
+                double[][] zHat = Extractor.values(cplex, model.getzHat());
+                double[][] tau = Extractor.values(cplex, model.getTau());
+                double[][] tauHat = Extractor.values(cplex, model.getTauHat());
+
                 writer.println();
                 writer.println(" Solution Status = " + cplex.getStatus());
                 writer.println();
@@ -77,7 +240,7 @@ public class Solver implements Method {
                 writer.println();
                 writer.println(" >> Chains");
                 for (int i = 0; i < cfg.getT(); i++) {
-                    if (cplex.getValue(model.getX()[i]) == 1) {
+                    if (x[i] > 0.5) {
                         writer.printf("Chain %s is accepted.\n", i);
                         acceptedChains++;
                     } else {
@@ -93,7 +256,7 @@ public class Solver implements Method {
                 writer.println();
                 int usedVNFMs = 0;
                 for (int i = 0; i < this.cfg.getW(); i++) {
-                    usedVNFMs += cplex.getValue(model.getyHat()[i]);
+                    usedVNFMs += Math.round(yHat[i]);
                 }
                 writer.printf("%d VNFMs is used", usedVNFMs);
                 writer.println();
@@ -104,11 +267,10 @@ public class Solver implements Method {
                 for (int h = 0; h < cfg.getT(); h++) {
                     writer.printf("Chain %d:\n", h);
                     for (int k = 0; k < cfg.getChains().get(h).nodes(); k++) {
-                        for (int i = 0; i < cfg.getF(); i++) {
-                            for (int j = 0; j < cfg.getW(); j++) {
-                                if (cplex.getValue(model.getZ()[i][j][k + v]) == 1) {
-                                    writer.printf("Node %d with type %d is mapped on %s\n", k, i, cfg.getNodes().get(j).getName());
-                                }
+                        int i = cfg.getChains().get(h).getNode(k).getIndex();
+                        for (int j = 0; j < cfg.getW(); j++) {
+                            if (z[j][k + v] > 0.5) {
+                                writer.printf("Node %d with type %d is mapped on %s\n", k, i, cfg.getNodes().get(j).getName());
                             }
                         }
                     }
@@ -120,7 +282,7 @@ public class Solver implements Method {
                 writer.println(" >> Manager mapping");
                 for (int h = 0; h < cfg.getT(); h++) {
                     for (int i = 0; i < cfg.getW(); i++) {
-                        if (cplex.getValue(model.getzHat()[h][i]) == 1) {
+                        if (zHat[h][i] > 0.5) {
                             writer.printf("Chain %d manager is %s\n", h, cfg.getNodes().get(i).getName());
                         }
                     }
@@ -131,7 +293,7 @@ public class Solver implements Method {
                 writer.println(" >> Manager instances");
                 for (int i = 0; i < cfg.getW(); i++) {
                     writer.printf("%s has %d manager instances\n",
-                            cfg.getNodes().get(i).getName(), (int) cplex.getValue(model.getyHat()[i]));
+                            cfg.getNodes().get(i).getName(), Math.round(yHat[i]));
                 }
                 writer.println();
 
@@ -140,26 +302,33 @@ public class Solver implements Method {
                 int u = 0;
                 v = 0;
                 for (int h = 0; h < cfg.getT(); h++) {
-                    for (int i = 0; i < cfg.getW(); i++) {
-                        for (int j = 0; j < cfg.getW(); j++) {
-                            if (cfg.getE()[i][j] > 0) {
-
-                                for (int k = 0; k < cfg.getChains().get(h).links(); k++) {
-                                    if (cplex.getValue(model.getTau()[i][j][u + k]) == 1) {
-                                        Link l = cfg.getChains().get(h).getLink(k);
-                                        writer.printf("Chain %d link %d (%d - %d) is on %s - %s\n", h, k,
-                                                l.getSource(), l.getDestination(),
-                                                cfg.getNodes().get(i).getName(), cfg.getNodes().get(j).getName());
-                                    }
-                                }
-
-                                for (int k = 0; k < cfg.getChains().get(h).nodes(); k++) {
-                                    if (cplex.getValue(model.getTauHat()[i][j][v + k]) == 1) {
-                                        writer.printf("Chain %d node %d manager is on %s - %s\n", h, k,
-                                                cfg.getNodes().get(i).getName(), cfg.getNodes().get(j).getName());
-                                    }
-                                }
+                    for (int e = 0; e < cfg.getLinks().size(); e++) {
+                        // skips the links that are not used by the chain at all
+                        boolean used = false;
+                        for (int k = 0; k < cfg.getChains().get(h).links() && !used; k++) {
+                            used = tau[e][u + k] > 0.5;
+                        }
+                        for (int k = 0; k < cfg.getChains().get(h).nodes() && !used; k++) {
+                            used = tauHat[e][v + k] > 0.5;
+                        }
+                        if (!used) {
+                            continue;
+                        }
+
+                        String source = cfg.getNodes().get(cfg.getLinks().get(e).getSource()).getName();
+                        String destination = cfg.getNodes().get(cfg.getLinks().get(e).getDestination()).getName();
+
+                        for (int k = 0; k < cfg.getChains().get(h).links(); k++) {
+                            if (tau[e][u + k] > 0.5) {
+                                Link l = cfg.getChains().get(h).getLink(k);
+                                writer.printf("Chain %d link %d (%d - %d) is on %s - %s\n", h, k,
+                                        l.getSource(), l.getDestination(), source, destination);
+                            }
+                        }
 
+                        for (int k = 0; k < cfg.getChains().get(h).nodes(); k++) {
+                            if (tauHat[e][v + k] > 0.5) {
+                                writer.printf("Chain %d node %d manager is on %s - %s\n", h, k, source, destination);
                             }
                         }
                     }
@@ -167,6 +336,42 @@ public class Solver implements Method {
                     v += cfg.getChains().get(h).nodes();
                 }
                 writer.println();
+
+                // placement and routes of the accepted chains as indices
+                int[] hosts = new int[cfg.getV()];
+                int[] managers = new int[cfg.getT()];
+                int[][] routes = new int[cfg.getU()][];
+                int[][] managementRoutes = new int[cfg.getV()][];
+                u = 0;
+                v = 0;
+                for (int h = 0; h < cfg.getT(); h++) {
+                    Chain chain = cfg.getChains().get(h);
+                    managers[h] = -1;
+                    for (int i = 0; i < cfg.getW() && x[h] > 0.5; i++) {
+                        if (zHat[h][i] > 0.5) {
+                            managers[h] = i;
+                        }
+                    }
+                    for (int k = 0; k < chain.nodes(); k++) {
+                        hosts[v + k] = -1;
+                        for (int j = 0; j < cfg.getW() && x[h] > 0.5; j++) {
+                            if (z[j][v + k] > 0.5) {
+                                hosts[v + k] = j;
+                            }
+                        }
+                        if (hosts[v + k] != -1 && chain.getNode(k).isManageable()) {
+                            managementRoutes[v + k] = Extractor.route(tauHat, v + k, cfg.getOutgoing(), hosts[v + k]);
+                        }
+                    }
+                    for (int k = 0; k < chain.links(); k++) {
+                        int source = hosts[v + chain.getLink(k).getSource()];
+                        routes[u + k] = source != -1 ? Extractor.route(tau, u + k, cfg.getOutgoing(), source) : new int[0];
+                    }
+                    u += chain.links();
+                    v += chain.nodes();
+                }
+                solution = new Solution(this.problem, (int) Math.round(cplex.getObjValue()),
+                        hosts, managers, routes, managementRoutes, usedVNFMs);
            } else {
                 System.err.printf("Solve failed: %s\n", cplex.getStatus());
             }
@@ -175,10 +380,18 @@ public class Solver implements Method {
             return null;
         }
 
-        // close the result file
         writer.flush();
         writer.close();
 
-        return null;
+        // write the result file
+        if (this.output != null) {
+            try {
+                Files.write(this.output.resolve(this.name + "-result.txt"), result.toString().getBytes());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        return solution;
     }
 }
@@ -1,11 +1,14 @@
 package home.parham.roadtomsc.exact.joint.model;
 
-import home.parham.roadtomsc.domain.Chain;
-import home.parham.roadtomsc.domain.Types;
 import home.parham.roadtomsc.exact.Config;
+import home.parham.roadtomsc.problem.Solution;
 import ilog.concert.*;
 import ilog.cplex.IloCplex;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Model creates variables, objective and constraints of mathematical
  * model of our problem in CPLEX.
@@ -21,6 +24,19 @@ public class Model {
      */
     private final Config cfg;
 
+    /**
+     * names indicates that variables and constraints have names. names are only
+     * required for exporting the model and formatting them takes a lot of time and memory
+     * on large instances so they are disabled by default.
+     */
+    private final boolean names;
+
+    /**
+     * aggregate indicates that manager to node support constraints are added for each chain and
+     * group of physical nodes with identical forbidden managers instead of each VNF and physical node.
+     */
+    private boolean aggregate;
+
     /**
      * binary variable assuming the value 1 if the _h_th SFC request is accepted;
      * otherwise its value is zero.
@@ -33,6 +49,7 @@ public class Model {
 
     /**
      * the number of VNF instances of type _k_ that are used in server _w_.
+     * it is null when server _w_ is not a candidate host of type _k_.
      *
      * y[w][k]
      * .lp format: y (physical node, type)
@@ -42,6 +59,7 @@ public class Model {
 
     /**
      * the number of VNFMs (each vnfm has its capacity and license fee) that are used in server _w_.
+     * it is null when server _w_ has no capacity for a VNFM.
      *
      * yh[w]
      * .lp format: y (physical node)
@@ -49,17 +67,19 @@ public class Model {
     private IloIntVar[] yHat;
 
     /**
-     * binary variable assuming the value 1 if the VNF node _v_ is served by the VNF instance of type
-     * _k_ in the server _w_.
+     * binary variable assuming the value 1 if the VNF node _v_ is served by the VNF instance of its type
+     * in the server _w_. VNF node _v_ can only be served by an instance of its own type so there is
+     * no variable for the other types. it is null when server _w_ is not a candidate host of the type.
      *
-     * z[k][w][v]
+     * z[w][v]
      * .lp format: z (type, physical node, chain number _ node number in the chain)
      */
-    private IloIntVar[][][] z;
+    private IloIntVar[][] z;
 
     /**
      * binary variable assuming the value 1 if the _h_th SFC is assigned to VNFM
-     * on server w.
+     * on server w. it is null when server _w_ is farther than the VNFM radius from all
+     * candidate hosts of a manageable VNF of the chain or it has no VNFM for the manageable VNFs.
      *
      * zh[h][w]
      * .lp format: zh (chain number, physical node)
@@ -68,21 +88,27 @@ public class Model {
 
     /**
      * binary variable assuming the value 1 if the virtual link _(u, v)_ is routed on
-     * the physical network link from _i_ to _j_.
+     * the physical network link _e_ (from _i_ to _j_).
+     * these variables are indexed by physical links so there is no variable for
+     * node pairs without a physical link between them.
      *
-     * tau[i][j][uv]
+     * tau[e][uv]
      * .lp format: tau (physical link source, physical link destination, chain number _ link number in the chain)
      */
-    private IloIntVar[][][] tau;
+    private IloIntVar[][] tau;
 
     /**
      * binary variable assuming the value 1 if the management of VNF node _v_
-     * is routed on the physical network link from _i_ to _j_.
+     * is routed on the physical network link _e_ (from _i_ to _j_).
+     * these variables are indexed by physical links so there is no variable for
+     * node pairs without a physical link between them. non-manageable VNFs have
+     * no management route so their entries are null, the links that are farther than
+     * the VNFM radius from all candidate hosts of the VNF type are null too.
      *
-     * tauHat[i][j][v]
+     * tauHat[e][v]
      * .lp format: tauh (physical link source, physical link destination, chain number _ node number in the chain)
      */
-    private IloIntVar[][][] tauHat;
+    private IloIntVar[][] tauHat;
 
     /**
      *
@@ -90,8 +116,40 @@ public class Model {
      * @param pCfg configuration instance
      */
     public Model(final IloModeler pModeler, final Config pCfg) {
+        this(pModeler, pCfg, false);
+    }
+
+    /**
+     *
+     * @param pModeler CPLEX modeler instance
+     * @param pCfg configuration instance
+     * @param pNames creates variables and constraints with names
+     */
+    public Model(final IloModeler pModeler, final Config pCfg, final boolean pNames) {
         this.modeler = pModeler;
         this.cfg = pCfg;
+        this.names = pNames;
+    }
+
+    /**
+     * @param aggregate adds the aggregated manager to node support constraints
+     * @return Model
+     */
+    public Model aggregate(boolean aggregate) {
+        this.aggregate = aggregate;
+        return this;
+    }
+
+    /**
+     * Formats name of a variable or a constraint when names are enabled.
+     *
+     * @return name or null that lets CPLEX use its default name
+     */
+    private String name(String format, Object... args) {
+        if (!this.names) {
+            return null;
+        }
+        return String.format(format, args);
     }
 
     /**
@@ -114,57 +172,47 @@ public class Model {
     private void xVariable() throws IloException {
         // x
         this.x = new IloIntVar[this.cfg.getT()];
-        String[] xNames = new String[this.cfg.getT()];
         for (int i = 0; i < this.cfg.getT(); i++) {
-            xNames[i] = String.format("x(%d)", i);
-            this.x[i] = this.modeler.boolVar(xNames[i]);
+            // chains that are dropped by the presolve have no variable
+            if (this.cfg.isViable(i)) {
+                this.x[i] = this.modeler.boolVar(name("x(%d)", i));
+            }
         }
     }
 
     private void yVariable() throws IloException {
         // y
-        String[][] yNames = new String[this.cfg.getW()][this.cfg.getF()];
-        for (int i = 0; i < this.cfg.getW(); i++) {
-            for (int j = 0; j < this.cfg.getF(); j++) {
-                yNames[i][j] = String.format("y(%d,%d)", i, j);
-            }
-        }
         this.y = new IloIntVar[this.cfg.getW()][this.cfg.getF()];
         for (int i = 0; i < this.cfg.getW(); i++) {
             for (int j = 0; j < this.cfg.getF(); j++) {
-                this.y[i][j] = this.modeler.intVar(0, Integer.MAX_VALUE, yNames[i][j]);
+                // there is no instance of type _j_ on physical node _i_ if it is not a candidate host of the type
+                if (this.cfg.isCandidate(j, i)) {
+                    this.y[i][j] = this.modeler.intVar(0, this.cfg.getInstanceBound(i, j), name("y(%d,%d)", i, j));
+                }
             }
         }
     }
 
     private void yHatVariable() throws IloException {
         // yHat
-        String[] yHatNames = new String[this.cfg.getW()];
+        this.yHat = new IloIntVar[this.cfg.getW()];
         for (int i = 0; i < this.cfg.getW(); i++) {
-            yHatNames[i] = String.format("yh(%d)", i);
+            // there is no VNFM on a physical node without capacity for it
+            if (this.cfg.getVnfmBound(i) > 0) {
+                this.yHat[i] = this.modeler.intVar(0, this.cfg.getVnfmBound(i), name("yh(%d)", i));
+            }
         }
-        this.yHat = this.modeler.intVarArray(this.cfg.getW() , 0, Integer.MAX_VALUE, yHatNames);
     }
 
     private void zVariable() throws IloException {
         // z
-        String[][][] zNames = new String[this.cfg.getF()][this.cfg.getW()][this.cfg.getV()];
-        for (int i = 0; i < this.cfg.getF(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                int v = 0;
-                for (int h = 0; h < this.cfg.getT(); h++) {
-                    for (int k = 0; k < this.cfg.getChains().get(h).nodes(); k++) {
-                        zNames[i][j][k + v] = String.format("z(%d,%d,%d_%d)", i, j, h, k);
-                    }
-                    v += this.cfg.getChains().get(h).nodes();
-                }
-            }
-        }
-        this.z = new IloIntVar[this.cfg.getF()][this.cfg.getW()][this.cfg.getV()];
-        for (int i = 0; i < this.cfg.getF(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                for (int k = 0; k < this.cfg.getV(); k++) {
-                    this.z[i][j][k] = modeler.boolVar(zNames[i][j][k]);
+        this.z = new IloIntVar[this.cfg.getW()][this.cfg.getV()];
+        for (int j = 0; j < this.cfg.getW(); j++) {
+            for (int v = 0; v < this.cfg.getV(); v++) {
+                int i = this.cfg.getVnfType(v);
+                int h = this.cfg.getVnfChain(v);
+                if (this.cfg.isCandidate(i, j) && this.cfg.isViable(h)) {
+                    this.z[j][v] = modeler.boolVar(name("z(%d,%d,%d_%d)", i, j, h, v - this.cfg.getVnfOffset(h)));
                 }
             }
         }
@@ -172,52 +220,53 @@ public class Model {
 
     private void zHatVariable() throws IloException {
         // zHat
-        String[][] zHatNames = new String[this.cfg.getT()][this.cfg.getW()];
-        for (int i = 0; i < this.cfg.getT(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                zHatNames[i][j] = String.format("zh(%d,%d)", i, j);
-            }
-        }
         this.zHat = new IloIntVar[this.cfg.getT()][this.cfg.getW()];
         for (int i = 0; i < this.cfg.getT(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                this.zHat[i][j] = this.modeler.boolVar(zHatNames[i][j]);
+            for (int j = 0; j < this.cfg.getW() && this.cfg.isViable(i); j++) {
+                // managers of the chains with manageable VNFs need a VNFM
+                if (this.yHat[j] == null && this.cfg.getManageableCount(i) > 0) {
+                    continue;
+                }
+
+                // manageable VNFs of the chain must be able to reach the manager within the radius
+                boolean reachable = true;
+                for (int v = this.cfg.getVnfOffset(i); v < this.cfg.getVnfOffset(i + 1) && reachable; v++) {
+                    if (this.cfg.isVnfManageable(v)) {
+                        int hops = this.cfg.getTypeHops(this.cfg.getVnfType(v), j);
+                        reachable = hops != -1 && hops <= this.cfg.getVnfmRadius();
+                    }
+                }
+                if (reachable) {
+                    this.zHat[i][j] = this.modeler.boolVar(name("zh(%d,%d)", i, j));
+                }
             }
         }
     }
 
     private void tauTauHatVariable() throws IloException {
         // tau, tauHat
-        String[][][] tauNames = new String[this.cfg.getW()][this.cfg.getW()][this.cfg.getU()];
-        String[][][] tauHatNames = new String[this.cfg.getW()][this.cfg.getW()][this.cfg.getV()];
-        for (int i = 0; i < this.cfg.getW(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                int u = 0;
-                int v = 0;
-                for (int h = 0; h < this.cfg.getT(); h++) {
-                    for (int k = 0; k < this.cfg.getChains().get(h).links(); k++) {
-                        tauNames[i][j][u + k] = String.format("tau(%d,%d,%d_%d)", i, j, h, k);
-                    }
-                    u += this.cfg.getChains().get(h).links();
-
-                    for (int k = 0; k < this.cfg.getChains().get(h).nodes(); k++) {
-                        tauHatNames[i][j][v + k] = String.format("tauh(%d,%d,%d_%d)", i, j, h, k);
-                    }
-                    v += this.cfg.getChains().get(h).nodes();
+        this.tau = new IloIntVar[this.cfg.getLinks().size()][this.cfg.getU()];
+        this.tauHat = new IloIntVar[this.cfg.getLinks().size()][this.cfg.getV()];
+        for (int e = 0; e < this.cfg.getLinks().size(); e++) {
+            int i = this.cfg.getLinks().get(e).getSource();
+            int j = this.cfg.getLinks().get(e).getDestination();
+
+            for (int uv = 0; uv < this.cfg.getU(); uv++) {
+                int h = this.cfg.getVirtualLinkChain(uv);
+                if (!this.cfg.isViable(h)) {
+                    continue;
                 }
+                this.tau[e][uv] = modeler.boolVar(name("tau(%d,%d,%d_%d)", i, j, h, uv - this.cfg.getVirtualLinkOffset(h)));
             }
-        }
-        this.tauHat = new IloIntVar[this.cfg.getW()][this.cfg.getW()][this.cfg.getV()];
-        this.tau = new IloIntVar[this.cfg.getW()][this.cfg.getW()][this.cfg.getU()];
-        for (int i = 0; i < this.cfg.getW(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-
-                for (int k = 0; k < this.cfg.getU(); k++) {
-                    this.tau[i][j][k] = modeler.boolVar(tauNames[i][j][k]);
-                }
 
-                for (int k = 0; k < this.cfg.getV(); k++) {
-                    this.tauHat[i][j][k] = modeler.boolVar(tauHatNames[i][j][k]);
+            // management routes only exist for manageable VNFs and they only use the links
+            // that are reachable from a candidate host of the VNF within the radius
+            for (int v = 0; v < this.cfg.getV(); v++) {
+                int hops = this.cfg.getTypeHops(this.cfg.getVnfType(v), i);
+                if (this.cfg.isVnfManageable(v) && this.cfg.isViable(this.cfg.getVnfChain(v))
+                        && hops != -1 && hops < this.cfg.getVnfmRadius()) {
+                    int h = this.cfg.getVnfChain(v);
+                    this.tauHat[e][v] = modeler.boolVar(name("tauh(%d,%d,%d_%d)", i, j, h, v - this.cfg.getVnfOffset(h)));
                 }
             }
         }
@@ -231,10 +280,14 @@ public class Model {
     public Model objective() throws IloException {
         IloLinearNumExpr expr = this.modeler.linearNumExpr();
         for (int i = 0; i < this.cfg.getT(); i++) {
-            expr.addTerm(this.cfg.getChains().get(i).getCost(), this.x[i]);
+            if (this.x[i] != null) {
+                expr.addTerm(this.cfg.getChains().get(i).getCost(), this.x[i]);
+            }
         }
         for (int i = 0; i < this.cfg.getW(); i++) {
-            expr.addTerm(-this.cfg.getVnfmLicenseFee(), this.yHat[i]);
+            if (this.yHat[i] != null) {
+                expr.addTerm(-this.cfg.getVnfmLicenseFee(), this.yHat[i]);
+            }
         }
         this.modeler.addMaximize(expr);
 
@@ -255,14 +308,15 @@ public class Model {
         */
         this.manageConstraint();
         this.managePlaceConstraint();
-        this.vnfSupportConstraint();
         this.managerToNodeSupportConstraint();
 
         this.flowConservation();
         this.managementFlowConservation();
 
-        this.egressConstraint();
-        this.ingressConstraint();
+        /*
+        egress, ingress and vnf support constraints were replaced by the candidate hosts of each type,
+        there is no y/z variable for a physical node that is not a candidate host of the type.
+        */
 
         this.linkBandwidthConstraint();
         this.radiusConstraint();
@@ -276,21 +330,46 @@ public class Model {
      */
     private void nodeMemoryCPUConstraint() throws IloException {
         for (int i = 0; i < this.cfg.getW(); i++) {
+            if (this.cfg.isForwarding(i)) {
+                continue;
+            }
+
             IloLinearNumExpr ramConstraint = this.modeler.linearNumExpr();
             IloLinearNumExpr cpuConstraint = this.modeler.linearNumExpr();
-
-            ramConstraint.addTerm(this.cfg.getVnfmRam(), this.yHat[i]); // VNFMs ram
-            cpuConstraint.addTerm(this.cfg.getVnfmCores(), this.yHat[i]); // VNFMs cpu
+            // instances that need no resource (ingress/egress) are left out so the constraints
+            // of zero capacity nodes are empty and they are not added
+            boolean ram = false;
+            boolean cpu = false;
+
+            if (this.yHat[i] != null) {
+                ramConstraint.addTerm(this.cfg.getVnfmRam(), this.yHat[i]); // VNFMs ram
+                cpuConstraint.addTerm(this.cfg.getVnfmCores(), this.yHat[i]); // VNFMs cpu
+                ram = this.cfg.getVnfmRam() > 0;
+                cpu = this.cfg.getVnfmCores() > 0;
+            }
 
             for (int j = 0; j < this.cfg.getF(); j++) {
-                ramConstraint.addTerm(Types.get(j).getRam(), this.y[i][j]); // instance ram
-                cpuConstraint.addTerm(Types.get(j).getCores(), this.y[i][j]); // instance cpu
+                if (this.y[i][j] == null) {
+                    continue;
+                }
+                if (this.cfg.getTypeRam(j) > 0) {
+                    ramConstraint.addTerm(this.cfg.getTypeRam(j), this.y[i][j]); // instance ram
+                    ram = true;
+                }
+                if (this.cfg.getTypeCores(j) > 0) {
+                    cpuConstraint.addTerm(this.cfg.getTypeCores(j), this.y[i][j]); // instance cpu
+                    cpu = true;
+                }
             }
 
-            this.modeler.addLe(cpuConstraint, this.cfg.getNodes().get(i).getCores(),
-                    String.format("node_cpu_constraint_node{%d}", i));
-            this.modeler.addLe(ramConstraint, this.cfg.getNodes().get(i).getRam(),
-                    String.format("node_memory_constraint_node{%d}", i));
+            if (cpu) {
+                this.modeler.addLe(cpuConstraint, this.cfg.getNodeCores(i),
+                        name("node_cpu_constraint_node{%d}", i));
+            }
+            if (ram) {
+                this.modeler.addLe(ramConstraint, this.cfg.getNodeRam(i),
+                        name("node_memory_constraint_node{%d}", i));
+            }
         }
     }
 
@@ -299,15 +378,29 @@ public class Model {
      * @throws IloException
      */
     private void servicePlaceConstraint() throws IloException {
-        for (int i = 0; i < this.cfg.getF(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                IloLinearIntExpr constraint = this.modeler.linearIntExpr();
+        for (int j = 0; j < this.cfg.getW(); j++) {
+            if (this.cfg.isForwarding(j)) {
+                continue;
+            }
+
+            IloLinearIntExpr[] constraints = new IloLinearIntExpr[this.cfg.getF()];
+            for (int i = 0; i < this.cfg.getF(); i++) {
+                constraints[i] = this.modeler.linearIntExpr();
+            }
 
-                for (int k = 0; k < this.cfg.getV(); k++) {
-                    constraint.addTerm(1, this.z[i][j][k]);
+            // VNF node _v_ only uses the instances of its own type
+            for (int v = 0; v < this.cfg.getV(); v++) {
+                if (this.z[j][v] != null) {
+                    constraints[this.cfg.getVnfType(v)].addTerm(1, this.z[j][v]);
                 }
+            }
 
-                this.modeler.addLe(constraint, this.y[j][i], String.format("service_place_constraint_type{%d}_node{%d}", i, j));
+            for (int i = 0; i < this.cfg.getF(); i++) {
+                // physical node _j_ cannot serve type _i_ at all
+                if (this.y[j][i] == null) {
+                    continue;
+                }
+                this.modeler.addLe(constraints[i], this.y[j][i], name("service_place_constraint_type{%d}_node{%d}", i, j));
             }
         }
     }
@@ -321,24 +414,21 @@ public class Model {
      * @throws IloException
      */
     private void serviceTypeConstraint() throws IloException {
-        int v = 0;
-        for (int h = 0; h < this.cfg.getT(); h++) {
-            for (int k = 0; k < this.cfg.getChains().get(h).nodes(); k++) {
-                IloLinearIntExpr constraint = this.modeler.linearIntExpr();
+        for (int v = 0; v < this.cfg.getV(); v++) {
+            int h = this.cfg.getVnfChain(v);
+            if (this.x[h] == null) {
+                continue;
+            }
+            IloLinearIntExpr constraint = this.modeler.linearIntExpr();
 
-                for (int i = 0; i < this.cfg.getF(); i++) {
-                    for (int j = 0; j < this.cfg.getW(); j++) {
-                        // adds z variable into service constraint if type of z is equal to type of node v
-                        if (this.cfg.getChains().get(h).getNode(k).getIndex() == i) {
-                            constraint.addTerm(1, this.z[i][j][k + v]);
-                        }
-                    }
+            for (int j = 0; j < this.cfg.getW(); j++) {
+                if (this.z[j][v] != null) {
+                    constraint.addTerm(1, this.z[j][v]);
                 }
-
-                // if chain `h` is serviced then all of its nodes should be serviced
-                this.modeler.addEq(constraint, this.x[h], String.format("service_constraint_chain{%d}_vnf{%d}", h, k));
             }
-            v += this.cfg.getChains().get(h).nodes();
+
+            // if chain `h` is serviced then all of its nodes should be serviced
+            this.modeler.addEq(constraint, this.x[h], name("service_constraint_chain{%d}_vnf{%d}", h, v - this.cfg.getVnfOffset(h)));
         }
     }
 
@@ -348,145 +438,144 @@ public class Model {
      */
     private void manageConstraint() throws IloException {
             for (int i = 0; i < this.cfg.getT(); i++) {
+                if (this.x[i] == null) {
+                    continue;
+                }
+
                 IloLinearIntExpr constraint = this.modeler.linearIntExpr();
 
                 for (int j = 0; j < this.cfg.getW(); j++) {
-                    constraint.addTerm(1, this.zHat[i][j]);
+                    if (this.zHat[i][j] != null) {
+                        constraint.addTerm(1, this.zHat[i][j]);
+                    }
                 }
 
-                this.modeler.addEq(constraint, this.x[i], String.format("manage_constraint_chain{%d}", i));
+                this.modeler.addEq(constraint, this.x[i], name("manage_constraint_chain{%d}", i));
             }
     }
 
     /**
-     * make all physical node that does not have egress support to have zero instance with egress type
+     * Manage Place Constraint + Manager Capacity
      * @throws IloException
      */
-    private void egressConstraint() throws IloException {
-        for (int i = 0; i < this.cfg.getF(); i++) {
-            if (!Types.get(i).isEgress()) { // do the following only for egress types
+    private void managePlaceConstraint() throws IloException {
+        for (int j = 0; j < this.cfg.getW(); j++) {
+            // there is no manager of the chains with manageable VNFs on the physical node
+            if (this.yHat[j] == null) {
                 continue;
             }
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                // physical node without have egress support must have zero instance with egress type
-                if (!this.cfg.getNodes().get(j).isEgress()) {
-                    physicalNodeWithoutTypeConstraint(i, j, "egress");
+
+            IloLinearIntExpr constraint = this.modeler.linearIntExpr();
+
+            for (int i = 0; i < this.cfg.getT(); i++) {
+                if (this.zHat[i][j] != null) {
+                    constraint.addTerm(this.cfg.getManageableCount(i), this.zHat[i][j]);
                 }
             }
+
+            constraint.addTerm(-this.cfg.getVnfmCapacity(), this.yHat[j]);
+            this.modeler.addLe(constraint,0, name("manage_place_constraint_node{%d}", j));
         }
     }
 
     /**
-     * make all physical node that does not have ingress support to have zero instance with ingress type
+     * Manager to node support constraint
      * @throws IloException
      */
-    private void ingressConstraint() throws IloException {
-        for (int i = 0; i < this.cfg.getF(); i++) {
-            if (!Types.get(i).isIngress()) { // do the following only for ingress types
+    private void managerToNodeSupportConstraint() throws IloException {
+        if (this.aggregate) {
+            this.aggregatedManagerToNodeSupportConstraint();
+            return;
+        }
+
+        for (int v = 0; v < this.cfg.getV(); v++) {
+            if (!this.cfg.isVnfManageable(v)) {
                 continue;
             }
+            int h = this.cfg.getVnfChain(v);
+
             for (int j = 0; j < this.cfg.getW(); j++) {
-                // physical node without have ingress support must have zero instance with ingress type
-                if (!this.cfg.getNodes().get(j).isIngress()) {
-                    physicalNodeWithoutTypeConstraint(i, j, "ingress");
+                // node _v_ cannot be placed on physical node _j_
+                if (this.z[j][v] == null) {
+                    continue;
                 }
-            }
-        }
-    }
-
-    /**
-     * make the physical node with index _j_ to have zero instance with type _i_
-     * this function is used by ingress/egress constraints
-     * @param i type index
-     * @param j physical node index
-     */
-    private void physicalNodeWithoutTypeConstraint(int i, int j, String type) throws IloException {
-        IloLinearIntExpr constraint = this.modeler.linearIntExpr();
-
-        constraint.addTerm(1, this.y[j][i]);
 
-        this.modeler.addEq(constraint, 0, String.format("%s_constraint_type{%d}_node{%d}", type, i, j));
-    }
-
-    /**
-     * Manage Place Constraint + Manager Capacity
-     * @throws IloException
-     */
-    private void managePlaceConstraint() throws IloException {
-        for (int j = 0; j < this.cfg.getW(); j++) {
-            IloLinearIntExpr constraint = this.modeler.linearIntExpr();
-
-            for (int i = 0; i < this.cfg.getT(); i++) {
-                constraint.addTerm(
-                        (int) this.cfg.getChains().get(i).getNodes().stream().filter(Types.Type::isManageable).count(),
-                        this.zHat[i][j]);
-            }
-
-            constraint.addTerm(-this.cfg.getVnfmCapacity(), this.yHat[j]);
-            this.modeler.addLe(constraint,0, String.format("manage_place_constraint_node{%d}", j));
-        }
-    }
+                // if constraint is empty skip it!
+                if (this.cfg.getForbiddenManagers(j).length == 0) {
+                    continue;
+                }
 
-    /**
-     * VNF support constraint
-     * @throws IloException
-     */
-    private void vnfSupportConstraint() throws IloException {
-        for (int i = 0; i < this.cfg.getW(); i++) {
-            if (!this.cfg.getNodes().get(i).isVnfSupport()) {
-            	IloLinearIntExpr constraint = this.modeler.linearIntExpr();
+                IloLinearIntExpr constraint = this.modeler.linearIntExpr();
 
-                for (int j = 0; j < this.cfg.getF(); j++) {
-                    constraint.addTerm(1, this.y[i][j]);
+                for (int n : this.cfg.getForbiddenManagers(j)) {
+                    // chain h cannot manage by physical node _n_ if node _v_ from chain _h_ placed
+                    // on physical node _j_
+                    if (this.zHat[h][n] != null) {
+                        constraint.addTerm(1, this.zHat[h][n]);
+                    }
                 }
+                if (!constraint.linearIterator().hasNext()) {
+                    continue;
+                }
+
+                IloLinearIntExpr rhs = this.modeler.linearIntExpr(1);
+                rhs.addTerm(-1, z[j][v]);
 
-                this.modeler.addEq(constraint, 0, String.format("vnf_support_constraint_node{%d}", i));
+                this.modeler.addLe(constraint,  rhs, name("manager_to_node_support_constraint_chain{%d}_vnf{%d}_type{%d}_node{%d}", h, v, this.cfg.getVnfType(v), j));
             }
         }
     }
 
     /**
-     * Manager to node support constraint
+     * Manager To Node Support Constraint in the aggregated form, for each chain _h_ and group _g_ of physical
+     * nodes with the forbidden managers _S_:
+     * sum(z[j][v] for manageable v of h, j in g) + M * sum(zh[h][n] for n in S) <= M
+     * where _M_ is the number of manageable VNFs of the chain that can be placed on the group.
+     * each VNF is placed at most once and each chain has at most one manager so it has
+     * the same integer solutions with fewer rows but a weaker linear relaxation.
      * @throws IloException
      */
-    private void managerToNodeSupportConstraint() throws IloException {
-        int v = 0;
+    private void aggregatedManagerToNodeSupportConstraint() throws IloException {
         for (int h = 0; h < this.cfg.getT(); h++) {
-            for (int k = 0; k < this.cfg.getChains().get(h).nodes(); k++) {
-                for (int i = 0; i < this.cfg.getF(); i++) {
-
-                    if (!Types.get(i).isManageable()) {
-                        continue;
-                    }
+            for (int g = 0; g < this.cfg.getExclusionGroupCount(); g++) {
+                int[] group = this.cfg.getExclusionGroup(g);
 
-                    // skip if k-th vnf does not have type i
-                    if (this.cfg.getChains().get(h).getNode(k).getIndex() != i) {
+                IloLinearIntExpr constraint = this.modeler.linearIntExpr();
+                int m = 0;
+                for (int v = this.cfg.getVnfOffset(h); v < this.cfg.getVnfOffset(h + 1); v++) {
+                    if (!this.cfg.isVnfManageable(v)) {
                         continue;
                     }
-
-                    for (int j = 0; j < this.cfg.getW(); j++) {
-                        IloLinearIntExpr constraint = this.modeler.linearIntExpr();
-
-                        for (int n = 0; n < this.cfg.getW(); n++) {
-                            if (this.cfg.getNodes().get(j).getNotManagerNodes().contains(n)) {
-                                // chain h cannot manage by physical node _n_ if node _v_ from chain _h_ placed
-                                // on physical node _j_
-                                constraint.addTerm(1, this.zHat[h][n]);
-                            }
+                    boolean placeable = false;
+                    for (int j : group) {
+                        if (this.z[j][v] != null) {
+                            constraint.addTerm(1, this.z[j][v]);
+                            placeable = true;
                         }
-                        // if constraint is empty skip it!
-                        if (!constraint.linearIterator().hasNext()) {
-                            continue;
-                        }
-
-                        IloLinearIntExpr rhs = this.modeler.linearIntExpr(1);
-                        rhs.addTerm(-1, z[i][j][k + v]);
+                    }
+                    if (placeable) {
+                        m++;
+                    }
+                }
+                // no VNF of the chain can be placed on the group
+                if (m == 0) {
+                    continue;
+                }
 
-                        this.modeler.addLe(constraint,  rhs, String.format("manager_to_node_support_constraint_chain{%d}_vnf{%d}_type{%d}_node{%d}", h, k + v, i, j));
+                boolean forbidden = false;
+                for (int n : this.cfg.getForbiddenManagers(group[0])) {
+                    if (this.zHat[h][n] != null) {
+                        constraint.addTerm(m, this.zHat[h][n]);
+                        forbidden = true;
                     }
                 }
+                // all forbidden managers are already out of the radius
+                if (!forbidden) {
+                    continue;
+                }
+
+                this.modeler.addLe(constraint, m, name("manager_to_node_support_constraint_chain{%d}_group{%d}", h, g));
             }
-            v += this.cfg.getChains().get(h).nodes();
         }
     }
 
@@ -496,42 +585,35 @@ public class Model {
      */
     private void flowConservation() throws IloException {
         // linkConstraint == nodeConstraint
-        int v = 0;
-        int u = 0;
-        for (Chain chain : this.cfg.getChains()) {
-            for (int i = 0; i < this.cfg.getW(); i++) {  // Source of Physical link
-                for (int l = 0; l < chain.links(); l++) { // Virtual link
-                    int virtualSource = chain.getLink(l).getSource() + v;
-                    int virtualDestination = chain.getLink(l).getDestination() + v;
-
-                    IloLinearIntExpr linkConstraint = this.modeler.linearIntExpr();
-                    IloLinearIntExpr nodeConstraint = this.modeler.linearIntExpr();
+        for (int uv = 0; uv < this.cfg.getU(); uv++) { // Virtual link
+            if (this.x[this.cfg.getVirtualLinkChain(uv)] == null) {
+                continue;
+            }
+            int virtualSource = this.cfg.getVirtualLinkSource(uv);
+            int virtualDestination = this.cfg.getVirtualLinkDestination(uv);
 
-                    // link constraint
-                    for (int j = 0; j < this.cfg.getW(); j++) { // Destination of Physical link
-                        if (this.cfg.getE()[i][j] > 0) {
-                            linkConstraint.addTerm(1, this.tau[i][j][u + l]);
-                        }
-                        if (this.cfg.getE()[j][i] > 0) {
-                            linkConstraint.addTerm(-1, this.tau[j][i][u + l]);
-                        }
-                    }
+            for (int i = 0; i < this.cfg.getW(); i++) {  // Source of Physical link
+                IloLinearIntExpr linkConstraint = this.modeler.linearIntExpr();
+                IloLinearIntExpr nodeConstraint = this.modeler.linearIntExpr();
 
-                    // node constraint
-                    for (int k = 0; k < this.cfg.getF(); k++) {
-                        if (chain.getNode(virtualSource - v).getIndex() == k) {
-                            nodeConstraint.addTerm(1, this.z[k][i][virtualSource]);
-                        }
-                        if (chain.getNode(virtualDestination - v).getIndex() == k) {
-                            nodeConstraint.addTerm(-1, this.z[k][i][virtualDestination]);
-                        }
-                    }
+                // link constraint
+                for (int p = this.cfg.getOutgoing().begin(i); p < this.cfg.getOutgoing().end(i); p++) { // Outgoing physical links
+                    linkConstraint.addTerm(1, this.tau[this.cfg.getOutgoing().link(p)][uv]);
+                }
+                for (int p = this.cfg.getIncoming().begin(i); p < this.cfg.getIncoming().end(i); p++) { // Incoming physical links
+                    linkConstraint.addTerm(-1, this.tau[this.cfg.getIncoming().link(p)][uv]);
+                }
 
-                    this.modeler.addEq(linkConstraint, nodeConstraint, "flow_conservation");
+                // node constraint
+                if (this.z[i][virtualSource] != null) {
+                    nodeConstraint.addTerm(1, this.z[i][virtualSource]);
+                }
+                if (this.z[i][virtualDestination] != null) {
+                    nodeConstraint.addTerm(-1, this.z[i][virtualDestination]);
                 }
+
+                this.modeler.addEq(linkConstraint, nodeConstraint, name("flow_conservation"));
             }
-            v += chain.nodes();
-            u += chain.links();
         }
     }
 
@@ -541,39 +623,43 @@ public class Model {
      */
     private void managementFlowConservation() throws IloException {
         // linkConstraint == nodeConstraint
-        int v = 0;
-        for (int h = 0; h < this.cfg.getT(); h++) {
-            for (int i = 0; i < this.cfg.getW(); i++) {  // Source of Physical link
-                for (int n = 0; n < this.cfg.getChains().get(h).nodes(); n++) { // Virtual node
-                    if (!this.cfg.getChains().get(h).getNode(n).isManageable()) {
-                        continue;
-                    }
+        for (int v = 0; v < this.cfg.getV(); v++) { // Virtual node
+            int h = this.cfg.getVnfChain(v);
+            if (!this.cfg.isVnfManageable(v) || this.x[h] == null) {
+                continue;
+            }
 
-                    IloLinearIntExpr linkConstraint = this.modeler.linearIntExpr();
-                    IloLinearIntExpr nodeConstraint = this.modeler.linearIntExpr();
+            for (int i = 0; i < this.cfg.getW(); i++) {  // Source of Physical link
+                IloLinearIntExpr linkConstraint = this.modeler.linearIntExpr();
+                IloLinearIntExpr nodeConstraint = this.modeler.linearIntExpr();
 
-                    // link constraint
-                    for (int j = 0; j < this.cfg.getW(); j++) { // Destination of Physical link
-                        if (this.cfg.getE()[i][j] > 0) {
-                            linkConstraint.addTerm(1, this.tauHat[i][j][v + n]);
-                        }
-                        if (this.cfg.getE()[j][i] > 0) {
-                            linkConstraint.addTerm(-1, this.tauHat[j][i][v + n]);
-                        }
+                // link constraint
+                for (int p = this.cfg.getOutgoing().begin(i); p < this.cfg.getOutgoing().end(i); p++) { // Outgoing physical links
+                    if (this.tauHat[this.cfg.getOutgoing().link(p)][v] != null) {
+                        linkConstraint.addTerm(1, this.tauHat[this.cfg.getOutgoing().link(p)][v]);
                     }
-
-                    // node constraint
-                    for (int k = 0; k < this.cfg.getF(); k++) {
-                        if (this.cfg.getChains().get(h).getNode(n).getIndex() == k) {
-                            nodeConstraint.addTerm(1, this.z[k][i][v + n]);
-                        }
+                }
+                for (int p = this.cfg.getIncoming().begin(i); p < this.cfg.getIncoming().end(i); p++) { // Incoming physical links
+                    if (this.tauHat[this.cfg.getIncoming().link(p)][v] != null) {
+                        linkConstraint.addTerm(-1, this.tauHat[this.cfg.getIncoming().link(p)][v]);
                     }
+                }
+
+                // node constraint
+                if (this.z[i][v] != null) {
+                    nodeConstraint.addTerm(1, this.z[i][v]);
+                }
+                if (this.zHat[h][i] != null) {
                     nodeConstraint.addTerm(-1, this.zHat[h][i]);
+                }
 
-                    this.modeler.addEq(linkConstraint, nodeConstraint, "management_flow_conservation");
+                // physical node is out of the radius of all hosts and managers of the VNF
+                if (!linkConstraint.linearIterator().hasNext() && !nodeConstraint.linearIterator().hasNext()) {
+                    continue;
                 }
+
+                this.modeler.addEq(linkConstraint, nodeConstraint, name("management_flow_conservation"));
             }
-            v += this.cfg.getChains().get(h).nodes();
         }
     }
 
@@ -582,30 +668,24 @@ public class Model {
      * @throws IloException
      */
     private void linkBandwidthConstraint() throws IloException {
-        for (int i = 0; i < this.cfg.getW(); i++) {
-            for (int j = 0; j < this.cfg.getW(); j++) {
-                if (this.cfg.getE()[i][j] > 0) {
-                    IloLinearIntExpr constraint = this.modeler.linearIntExpr();
-
-                    int u = 0;
-                    int v = 0;
-                    for (Chain chain : this.cfg.getChains()) {
-                        // VNFs
-                        for (int k = 0; k < chain.links(); k++) {
-                            constraint.addTerm(chain.getLink(k).getBandwidth(), this.tau[i][j][k + u]);
-                        }
+        for (int e = 0; e < this.cfg.getLinks().size(); e++) {
+            IloLinearIntExpr constraint = this.modeler.linearIntExpr();
 
-                        // VNFM
-                        for (int k = 0; k < chain.nodes(); k++) {
-                            constraint.addTerm(this.cfg.getVnfmBandwidth(), this.tauHat[i][j][k + v]);
-                        }
-                        v += chain.nodes();
-                        u += chain.links();
-                    }
+            // VNFs
+            for (int uv = 0; uv < this.cfg.getU(); uv++) {
+                if (this.tau[e][uv] != null) {
+                    constraint.addTerm(this.cfg.getVirtualLinkBandwidth(uv), this.tau[e][uv]);
+                }
+            }
 
-                    this.modeler.addLe(constraint, this.cfg.getE()[i][j], "link_bandwidth_constraint");
+            // VNFM
+            for (int v = 0; v < this.cfg.getV(); v++) {
+                if (this.tauHat[e][v] != null) {
+                    constraint.addTerm(this.cfg.getVnfmBandwidth(), this.tauHat[e][v]);
                 }
             }
+
+            this.modeler.addLe(constraint, this.cfg.getLinks().get(e).getBandwidth(), name("link_bandwidth_constraint"));
         }
     }
 
@@ -614,18 +694,151 @@ public class Model {
      * @throws IloException
      */
     private void radiusConstraint() throws IloException {
-        for (int i = 0; i < this.cfg.getV(); i++) {
+        for (int v = 0; v < this.cfg.getV(); v++) {
+            if (!this.cfg.isVnfManageable(v) || this.x[this.cfg.getVnfChain(v)] == null) {
+                continue;
+            }
+
             IloLinearIntExpr constraint = this.modeler.linearIntExpr();
 
+            for (int e = 0; e < this.cfg.getLinks().size(); e++) {
+                if (this.tauHat[e][v] != null) {
+                    constraint.addTerm(1, this.tauHat[e][v]);
+                }
+            }
+
+            this.modeler.addLe(constraint, this.cfg.getVnfmRadius(), name("management_radius_constraint"));
+        }
+    }
+
+    /**
+     * Adds the given solution as a MIP start. the start covers placement (x, y, z), management (yHat, zHat)
+     * and routing (tau, tauHat) variables and CPLEX repairs it when it is partially infeasible.
+     *
+     * @param cplex CPLEX instance that has this model
+     * @param solution solution of the same problem (heuristic, previous run or the disjoint solver)
+     * @return Model
+     * @throws IloException
+     */
+    public Model start(IloCplex cplex, Solution solution) throws IloException {
+        List<IloNumVar> vars = new ArrayList<>();
+        List<Double> vals = new ArrayList<>();
+
+        int[][] instances = new int[this.cfg.getW()][this.cfg.getF()];
+        int[] managed = new int[this.cfg.getW()];
+
+        for (int h = 0; h < this.cfg.getT(); h++) {
+            boolean accepted = solution.isAccepted(h);
+            if (this.x[h] == null) {
+                continue;
+            }
+
+            vars.add(this.x[h]);
+            vals.add(accepted ? 1.0 : 0.0);
+
             for (int j = 0; j < this.cfg.getW(); j++) {
-                for (int k = 0; k < this.cfg.getW(); k++) {
-                    if (this.cfg.getE()[j][k] > 0) {
-                        constraint.addTerm(1, this.tauHat[j][k][i]);
-                    }
+                if (this.zHat[h][j] != null) {
+                    vars.add(this.zHat[h][j]);
+                    vals.add(accepted && solution.getManagers()[h] == j ? 1.0 : 0.0);
+                }
+            }
+        }
+
+        for (int v = 0; v < this.cfg.getV(); v++) {
+            int h = this.cfg.getVnfChain(v);
+            // chains that are dropped by presolve are not in the model and do not use any instance
+            int host = this.x[h] != null && solution.isAccepted(h) ? solution.getHosts()[v] : -1;
+            int manager = host != -1 ? solution.getManagers()[h] : -1;
+            if (host != -1) {
+                instances[host][this.cfg.getVnfType(v)]++;
+                if (this.cfg.isVnfManageable(v) && manager != -1) {
+                    managed[manager]++;
+                }
+            }
+
+            for (int j = 0; j < this.cfg.getW(); j++) {
+                if (this.z[j][v] != null) {
+                    vars.add(this.z[j][v]);
+                    vals.add(host == j ? 1.0 : 0.0);
+                }
+            }
+
+            if (this.cfg.isVnfManageable(v)) {
+                int[] route = host != -1 ? solution.getManagementRoutes()[v] : null;
+                this.route(this.tauHat, v, route != null ? route : new int[0], vars, vals);
+            }
+        }
+
+        for (int uv = 0; uv < this.cfg.getU(); uv++) {
+            int h = this.cfg.getVirtualLinkChain(uv);
+            int[] route = this.x[h] != null && solution.isAccepted(h) ? solution.getRoutes()[uv] : null;
+            this.route(this.tau, uv, route != null ? route : new int[0], vars, vals);
+        }
+
+        for (int i = 0; i < this.cfg.getW(); i++) {
+            for (int j = 0; j < this.cfg.getF(); j++) {
+                if (this.y[i][j] != null) {
+                    vars.add(this.y[i][j]);
+                    vals.add((double) instances[i][j]);
                 }
             }
+            if (this.yHat[i] != null) {
+                vars.add(this.yHat[i]);
+                vals.add((double) Config.vnfms(managed[i], this.cfg.getVnfmCapacity()));
+            }
+        }
+
+        cplex.addMIPStart(vars.toArray(new IloNumVar[0]), vals.stream().mapToDouble(Double::doubleValue).toArray(),
+                IloCplex.MIPStartEffort.Repair);
 
-            this.modeler.addLe(constraint, this.cfg.getVnfmRadius(), "management_radius_constraint");
+        return this;
+    }
+
+    /**
+     * Sets the branching direction of the chain acceptance and VNF placement variables that are one
+     * in the given solution to up, so CPLEX explores the neighborhood of the solution first.
+     *
+     * @param cplex CPLEX instance that has this model
+     * @param solution solution of the same problem
+     * @return Model
+     * @throws IloException
+     */
+    public Model hint(IloCplex cplex, Solution solution) throws IloException {
+        List<IloNumVar> vars = new ArrayList<>();
+
+        for (int h = 0; h < this.cfg.getT(); h++) {
+            if (!solution.isAccepted(h) || this.x[h] == null) {
+                continue;
+            }
+            vars.add(this.x[h]);
+            for (int v = this.cfg.getVnfOffset(h); v < this.cfg.getVnfOffset(h + 1); v++) {
+                IloIntVar z = this.z[solution.getHosts()[v]][v];
+                if (z != null) {
+                    vars.add(z);
+                }
+            }
+        }
+
+        IloCplex.BranchDirection[] directions = new IloCplex.BranchDirection[vars.size()];
+        Arrays.fill(directions, IloCplex.BranchDirection.Up);
+        cplex.setDirections(vars.toArray(new IloNumVar[0]), directions);
+
+        return this;
+    }
+
+    /**
+     * Adds values of a routing variable family column, links of the route are one and others are zero.
+     */
+    private void route(IloIntVar[][] vars, int column, int[] route, List<IloNumVar> starts, List<Double> values) {
+        boolean[] used = new boolean[this.cfg.getLinks().size()];
+        for (int e : route) {
+            used[e] = true;
+        }
+        for (int e = 0; e < this.cfg.getLinks().size(); e++) {
+            if (vars[e][column] != null) {
+                starts.add(vars[e][column]);
+                values.add(used[e] ? 1.0 : 0.0);
+            }
         }
     }
 
@@ -641,7 +854,7 @@ public class Model {
         return yHat;
     }
 
-    public IloIntVar[][][] getZ() {
+    public IloIntVar[][] getZ() {
         return z;
     }
 
@@ -649,11 +862,11 @@ public class Model {
         return zHat;
     }
 
-    public IloIntVar[][][] getTau() {
+    public IloIntVar[][] getTau() {
         return tau;
     }
 
-    public IloIntVar[][][] getTauHat() {
+    public IloIntVar[][] getTauHat() {
         return tauHat;
     }
 }
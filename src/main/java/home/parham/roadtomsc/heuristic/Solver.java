@@ -0,0 +1,429 @@
+/*
+ * In The Name Of God
+ * ======================================
+ * [] Project Name : roadtomsc
+ *
+ * [] Package Name : home.parham.roadtomsc.heuristic
+ *
+ * [] Creation Date : 17-10-2026
+ *
+ * [] Created By : Parham Alvani (parham.alvani@gmail.com)
+ * =======================================
+ */
+
+package home.parham.roadtomsc.heuristic;
+
+import home.parham.roadtomsc.exact.Adjacency;
+import home.parham.roadtomsc.problem.Config;
+import home.parham.roadtomsc.problem.Method;
+import home.parham.roadtomsc.problem.Solution;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Solver places the chains one by one greedily on the residual capacity of the physical network.
+ * VNFs are placed near their predecessors, virtual links are routed on the shortest paths that
+ * have enough bandwidth and then the chain manager is placed on a node that already has
+ * a VNFM with enough capacity or on the nearest node that can run a new one.
+ * a chain that cannot be placed, routed or managed is rejected and its resources are released.
+ */
+public class Solver implements Method {
+    private Config cfg;
+
+    /**
+     * flat arrays of the problem instance
+     */
+    private home.parham.roadtomsc.exact.Config instance;
+
+    /**
+     * number of physical nodes
+     */
+    private int W;
+
+    /**
+     * outgoing links of each physical node
+     */
+    private Adjacency outgoing;
+
+    /**
+     * residual cores of each physical node
+     */
+    private int[] cores;
+
+    /**
+     * residual ram of each physical node
+     */
+    private int[] ram;
+
+    /**
+     * residual bandwidth of each physical link
+     */
+    private int[] bandwidth;
+
+    /**
+     * number of VNFM instances on each physical node
+     */
+    private int[] vnfms;
+
+    /**
+     * number of VNFs that are managed by VNFMs of each physical node
+     */
+    private int[] managed;
+
+    public Solver(Config cfg) {
+        this(cfg, home.parham.roadtomsc.exact.Config.build(cfg));
+    }
+
+    /**
+     * @param cfg problem configuration
+     * @param instance configuration instance that is built from the problem configuration
+     */
+    public Solver(Config cfg, home.parham.roadtomsc.exact.Config instance) {
+        this.cfg = cfg;
+        this.instance = instance;
+        this.W = this.instance.getW();
+        this.outgoing = this.instance.getOutgoing();
+    }
+
+    @Override
+    public Solution solve() {
+        Instant now = Instant.now();
+
+        this.cores = new int[this.W];
+        this.ram = new int[this.W];
+        for (int i = 0; i < this.W; i++) {
+            this.cores[i] = this.instance.getNodeCores(i);
+            this.ram[i] = this.instance.getNodeRam(i);
+        }
+        this.bandwidth = new int[this.instance.getLinks().size()];
+        for (int e = 0; e < this.instance.getLinks().size(); e++) {
+            this.bandwidth[e] = this.instance.getLinks().get(e).getBandwidth();
+        }
+        this.vnfms = new int[this.W];
+        this.managed = new int[this.W];
+
+        int V = this.instance.getV();
+        int U = this.instance.getU();
+
+        int[] hosts = new int[V];
+        Arrays.fill(hosts, -1);
+        int[] managers = new int[this.instance.getT()];
+        Arrays.fill(managers, -1);
+        int[][] routes = new int[U][];
+        Arrays.fill(routes, new int[0]);
+        int[][] managementRoutes = new int[V][];
+
+        int revenue = 0;
+        for (int h = 0; h < this.instance.getT(); h++) {
+            int v = this.instance.getVnfOffset(h);
+            int u = this.instance.getVirtualLinkOffset(h);
+            int nodes = this.instance.getVnfOffset(h + 1) - v;
+            int links = this.instance.getVirtualLinkOffset(h + 1) - u;
+
+            // keeps the residual capacities to release them when the chain is rejected
+            int[] cores = this.cores.clone();
+            int[] ram = this.ram.clone();
+            int[] bandwidth = this.bandwidth.clone();
+            int[] vnfms = this.vnfms.clone();
+            int[] managed = this.managed.clone();
+
+            // chains that are dropped by the presolve cannot be placed
+            int[] placement = this.instance.isViable(h) ? this.place(h) : null;
+            int[][] chainRoutes = null;
+            int[][] chainManagementRoutes = new int[nodes][];
+            int manager = -1;
+            if (placement != null) {
+                chainRoutes = this.route(h, placement);
+            }
+            if (chainRoutes != null) {
+                manager = this.manage(h, placement, chainManagementRoutes);
+            }
+
+            if (manager == -1) {
+                this.cores = cores;
+                this.ram = ram;
+                this.bandwidth = bandwidth;
+                this.vnfms = vnfms;
+                this.managed = managed;
+            } else {
+                System.arraycopy(placement, 0, hosts, v, nodes);
+                System.arraycopy(chainRoutes, 0, routes, u, links);
+                System.arraycopy(chainManagementRoutes, 0, managementRoutes, v, nodes);
+                managers[h] = manager;
+
+                revenue += this.instance.getChains().get(h).getCost();
+            }
+        }
+
+        int vnfmInstances = Arrays.stream(this.vnfms).sum();
+
+        System.out.printf("Problem solved in %s\n", Duration.between(now, Instant.now()));
+
+        return new Solution(this.cfg, revenue - vnfmInstances * this.instance.getVnfmLicenseFee(),
+                hosts, managers, routes, managementRoutes, vnfmInstances);
+    }
+
+    /**
+     * Places VNFs of the given chain in order, each VNF is placed on the nearest candidate node of its
+     * predecessor (the source of its incoming virtual link) that has enough residual resources.
+     *
+     * @return host of each VNF of the _h_th chain or null when a VNF cannot be placed
+     */
+    private int[] place(int h) {
+        int offset = this.instance.getVnfOffset(h);
+        int[] hosts = new int[this.instance.getVnfOffset(h + 1) - offset];
+        Arrays.fill(hosts, -1);
+
+        for (int v = offset; v < this.instance.getVnfOffset(h + 1); v++) {
+            int type = this.instance.getVnfType(v);
+
+            // predecessor of the VNF and bandwidth of the virtual link between them
+            int predecessor = -1;
+            int demand = 0;
+            for (int uv = this.instance.getVirtualLinkOffset(h); uv < this.instance.getVirtualLinkOffset(h + 1); uv++) {
+                if (this.instance.getVirtualLinkDestination(uv) == v && this.instance.getVirtualLinkSource(uv) < v) {
+                    predecessor = hosts[this.instance.getVirtualLinkSource(uv) - offset];
+                    demand = this.instance.getVirtualLinkBandwidth(uv);
+                    break;
+                }
+            }
+
+            int host = -1;
+            if (predecessor != -1) {
+                int[] distance = this.distances(predecessor, demand);
+                for (int i = 0; i < this.W; i++) {
+                    if (distance[i] == -1 || !this.fits(type, i)) {
+                        continue;
+                    }
+                    if (host == -1 || distance[i] < distance[host]) {
+                        host = i;
+                    }
+                }
+            } else {
+                // the first VNF goes on the node with the most residual cores
+                for (int i = 0; i < this.W; i++) {
+                    if (!this.fits(type, i)) {
+                        continue;
+                    }
+                    if (host == -1 || this.cores[i] > this.cores[host]) {
+                        host = i;
+                    }
+                }
+            }
+
+            if (host == -1) {
+                return null;
+            }
+
+            hosts[v - offset] = host;
+            this.cores[host] -= this.instance.getTypeCores(type);
+            this.ram[host] -= this.instance.getTypeRam(type);
+        }
+
+        return hosts;
+    }
+
+    /**
+     * @return that physical node _i_ supports the given type and has enough residual resources for an instance of it
+     */
+    private boolean fits(int type, int i) {
+        return this.instance.isCandidate(type, i)
+                && this.cores[i] >= this.instance.getTypeCores(type) && this.ram[i] >= this.instance.getTypeRam(type);
+    }
+
+    /**
+     * Routes virtual links of the _h_th chain on the shortest paths with enough residual bandwidth.
+     *
+     * @return links of the route of each virtual link or null when a virtual link cannot be routed
+     */
+    private int[][] route(int h, int[] hosts) {
+        int offset = this.instance.getVnfOffset(h);
+        int[][] routes = new int[this.instance.getVirtualLinkOffset(h + 1) - this.instance.getVirtualLinkOffset(h)][];
+        for (int uv = this.instance.getVirtualLinkOffset(h); uv < this.instance.getVirtualLinkOffset(h + 1); uv++) {
+            int demand = this.instance.getVirtualLinkBandwidth(uv);
+            int[] path = this.path(hosts[this.instance.getVirtualLinkSource(uv) - offset],
+                    hosts[this.instance.getVirtualLinkDestination(uv) - offset], demand);
+            if (path == null) {
+                return null;
+            }
+            for (int e : path) {
+                this.bandwidth[e] -= demand;
+            }
+            routes[uv - this.instance.getVirtualLinkOffset(h)] = path;
+        }
+        return routes;
+    }
+
+    /**
+     * Places the manager of the given chain, nodes that already have a VNFM with enough capacity are
+     * preferred over the nodes that need a new VNFM and between them the nearer ones are preferred.
+     * each manageable VNF is connected to its manager with a route that is not longer than the VNFM radius.
+     *
+     * @param routes is filled with links of the management route of each manageable VNF
+     * @return manager of the chain or -1 when the chain cannot be managed
+     */
+    private int manage(int h, int[] hosts, int[][] routes) {
+        int offset = this.instance.getVnfOffset(h);
+        int m = this.instance.getManageableCount(h);
+
+        // nodes that cannot manage at least one of the chain VNFs
+        BitSet forbidden = new BitSet(this.W);
+        // sum of the management route lengths for each manager
+        int[] length = new int[this.W];
+        for (int k = 0; k < hosts.length; k++) {
+            if (!this.instance.isVnfManageable(offset + k)) {
+                continue;
+            }
+            for (int n : this.instance.getForbiddenManagers(hosts[k])) {
+                forbidden.set(n);
+            }
+
+            int[] distance = this.distances(hosts[k], this.instance.getVnfmBandwidth());
+            for (int i = 0; i < this.W; i++) {
+                if (distance[i] == -1 || distance[i] > this.instance.getVnfmRadius()) {
+                    forbidden.set(i);
+                } else {
+                    length[i] += distance[i];
+                }
+            }
+        }
+
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < this.W; i++) {
+            if (!forbidden.get(i) && this.instances(i, m) != -1) {
+                candidates.add(i);
+            }
+        }
+        candidates.sort(Comparator.<Integer>comparingInt(i -> this.instances(i, m)).thenComparingInt(i -> length[i]));
+
+        int[] bandwidth = this.bandwidth.clone();
+        for (int manager : candidates) {
+            Arrays.fill(routes, null);
+            boolean routed = true;
+            for (int k = 0; k < hosts.length && routed; k++) {
+                if (!this.instance.isVnfManageable(offset + k)) {
+                    continue;
+                }
+                int[] path = this.path(hosts[k], manager, this.instance.getVnfmBandwidth());
+                if (path == null || path.length > this.instance.getVnfmRadius()) {
+                    routed = false;
+                    continue;
+                }
+
+                for (int e : path) {
+                    this.bandwidth[e] -= this.instance.getVnfmBandwidth();
+                }
+                routes[k] = path;
+            }
+
+            if (!routed) {
+                this.bandwidth = bandwidth.clone();
+                continue;
+            }
+
+            int instances = this.instances(manager, m);
+            this.vnfms[manager] += instances;
+            this.cores[manager] -= instances * this.instance.getVnfmCores();
+            this.ram[manager] -= instances * this.instance.getVnfmRam();
+            this.managed[manager] += m;
+
+            return manager;
+        }
+
+        Arrays.fill(routes, null);
+        return -1;
+    }
+
+    /**
+     * @param i physical node
+     * @param m number of manageable VNFs
+     * @return number of new VNFM instances that physical node _i_ needs to manage _m_ more VNFs
+     * or -1 when it does not have enough resources for them
+     */
+    private int instances(int i, int m) {
+        if (m > 0 && this.instance.getVnfmCapacity() <= 0) {
+            // VNFMs without capacity cannot manage any VNF
+            return -1;
+        }
+        int required = home.parham.roadtomsc.exact.Config.vnfms(this.managed[i] + m, this.instance.getVnfmCapacity()) - this.vnfms[i];
+        if (required <= 0) {
+            return 0;
+        }
+        if (this.cores[i] < required * this.instance.getVnfmCores() || this.ram[i] < required * this.instance.getVnfmRam()) {
+            return -1;
+        }
+        return required;
+    }
+
+    /**
+     * Breadth first search on the links with enough residual bandwidth.
+     *
+     * @return the link that reaches each physical node on a shortest path from the source,
+     * -1 for the source and -2 for unreachable nodes
+     */
+    private int[] search(int source, int demand) {
+        int[] via = new int[this.W];
+        Arrays.fill(via, -2);
+        via[source] = -1;
+
+        Deque<Integer> queue = new ArrayDeque<>();
+        queue.add(source);
+        while (!queue.isEmpty()) {
+            int i = queue.poll();
+            for (int p = this.outgoing.begin(i); p < this.outgoing.end(i); p++) {
+                int j = this.outgoing.neighbor(p);
+                if (via[j] != -2 || this.bandwidth[this.outgoing.link(p)] < demand) {
+                    continue;
+                }
+                via[j] = this.outgoing.link(p);
+                queue.add(j);
+            }
+        }
+
+        return via;
+    }
+
+    /**
+     * @return hop distance of each physical node from the source or -1 for unreachable nodes
+     */
+    private int[] distances(int source, int demand) {
+        int[] via = this.search(source, demand);
+        int[] distance = new int[this.W];
+        for (int i = 0; i < this.W; i++) {
+            distance[i] = -1;
+            if (via[i] == -2) {
+                continue;
+            }
+            distance[i] = 0;
+            for (int j = i; via[j] != -1; j = this.instance.getLinks().get(via[j]).getSource()) {
+                distance[i]++;
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * @return links of a shortest path from the source to the destination with enough residual bandwidth
+     * or null when there is no such path
+     */
+    private int[] path(int source, int destination, int demand) {
+        int[] via = this.search(source, demand);
+        if (via[destination] == -2) {
+            return null;
+        }
+
+        List<Integer> links = new ArrayList<>();
+        for (int j = destination; via[j] != -1; j = this.instance.getLinks().get(via[j]).getSource()) {
+            links.add(0, via[j]);
+        }
+        return links.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -3,6 +3,7 @@ package home.parham.roadtomsc.problem;
 import home.parham.roadtomsc.domain.Chain;
 import home.parham.roadtomsc.domain.Link;
 import home.parham.roadtomsc.domain.Node;
+import home.parham.roadtomsc.domain.Types;
 
 import java.util.Collections;
 import java.util.List;
@@ -14,6 +15,11 @@ import java.util.List;
  */
 public class Config {
 
+    /**
+     * VNF types catalog
+     */
+    private Types types;
+
     /**
      * physical nodes
      */
@@ -35,6 +41,7 @@ public class Config {
     private int vnfmRam, vnfmCores, vnfmCapacity, vnfmRadius, vnfmBandwidth, vnfmLicenseFee;
 
     public Config(
+            Types types,
             List<Node> nodes,
             List<Link> links,
             List<Chain> chains,
@@ -45,6 +52,7 @@ public class Config {
             int vnfmBandwidth,
             int vnfmLicenseFee
     ) {
+        this.types = types;
         this.nodes = nodes;
         this.links = links;
         this.chains = chains;
@@ -56,6 +64,10 @@ public class Config {
         this.vnfmLicenseFee = vnfmLicenseFee;
     }
 
+    public Types getTypes() {
+        return types;
+    }
+
     public List<Node> getNodes() {
         return Collections.unmodifiableList(nodes);
     }
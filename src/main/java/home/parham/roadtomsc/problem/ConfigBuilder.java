@@ -16,10 +16,16 @@ package home.parham.roadtomsc.problem;
 import home.parham.roadtomsc.domain.Chain;
 import home.parham.roadtomsc.domain.Link;
 import home.parham.roadtomsc.domain.Node;
+import home.parham.roadtomsc.domain.Types;
 
 import java.util.ArrayList;
 
 public class ConfigBuilder {
+    /**
+     * VNF types catalog
+     */
+    private Types types = new Types();
+
     /**
      * physical nodes
      */
@@ -40,6 +46,16 @@ public class ConfigBuilder {
      */
     private int vnfmRam, vnfmCores, vnfmCapacity, vnfmRadius, vnfmBandwidth, vnfmLicenseFee;
 
+    /**
+     * Sets VNF types catalog, chains must only use the types of this catalog
+     *
+     * @param types: VNF types catalog
+     */
+    public ConfigBuilder types(Types types) {
+        this.types = types;
+        return this;
+    }
+
     public ConfigBuilder vnfmRam(int vnfmRam) {
         this.vnfmRam = vnfmRam;
         return this;
@@ -106,6 +122,7 @@ public class ConfigBuilder {
      */
     public Config build() {
         return new Config(
+                this.types,
                 this.nodes,
                 this.links,
                 this.chains,
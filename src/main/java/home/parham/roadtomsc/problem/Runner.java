@@ -0,0 +1,65 @@
+/*
+ * In The Name Of God
+ * ======================================
+ * [] Project Name : roadtomsc
+ *
+ * [] Package Name : home.parham.roadtomsc.problem
+ *
+ * [] Creation Date : 17-10-2026
+ *
+ * [] Created By : Parham Alvani (parham.alvani@gmail.com)
+ * =======================================
+ */
+
+package home.parham.roadtomsc.problem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runner solves the problem with multiple methods concurrently, each method on its own thread.
+ * methods share the same configuration so they must not change it and they must not
+ * write into the same files.
+ */
+public class Runner {
+    private final List<Method> methods;
+
+    public Runner() {
+        this.methods = new ArrayList<>();
+    }
+
+    public Runner add(Method method) {
+        this.methods.add(method);
+        return this;
+    }
+
+    /**
+     * @return solution of each method in the order of addition and null for the failed methods
+     */
+    public List<Solution> run() {
+        ExecutorService executor = Executors.newFixedThreadPool(this.methods.size());
+
+        List<Future<Solution>> futures = new ArrayList<>();
+        for (Method method : this.methods) {
+            futures.add(executor.submit(method::solve));
+        }
+
+        List<Solution> solutions = new ArrayList<>();
+        for (Future<Solution> future : futures) {
+            try {
+                solutions.add(future.get());
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+                solutions.add(null);
+            }
+        }
+
+        executor.shutdown();
+
+        return solutions;
+    }
+}
@@ -13,34 +13,68 @@
 
 package home.parham.roadtomsc.problem;
 
+import home.parham.roadtomsc.domain.Chain;
+
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Solution stores placements and routes with indices of the physical nodes and links,
+ * names of them are only looked up when a solution is printed.
+ * VNFs and virtual links are indexed globally over all the chains in their order.
+ */
 public class Solution {
+    /**
+     * configuration of the solved problem that provides names of the physical nodes
+     */
+    private final Config cfg;
+
     private int cost;
+
     /**
-     * Placement array for each chain and empty array indicates error in placement
+     * index of the physical node that hosts each VNF and -1 indicates that its chain is rejected
+     *
+     * hosts[v]
      */
-    private List<List<String>> vnfPlacement;
+    private final int[] hosts;
+
+    /**
+     * index of each chain's manager physical node and -1 indicates that the chain is rejected
+     *
+     * managers[h]
+     */
+    private final int[] managers;
+
     /**
-     * Name of chain's manager physical server and `-` indicates error in placement
+     * links of the route of each virtual link in order and empty array indicates that
+     * both ends are on the same physical node or that its chain is rejected
+     *
+     * routes[uv]
      */
-    private List<String> vnfmPlacement;
+    private final int[][] routes;
+
     /**
-     * Route from Manageable vnf to its manager and empty array indicates error in routing
+     * links of the route from each manageable VNF to its manager in order and null indicates
+     * that the VNF is not manageable or that its chain is rejected
+     *
+     * managementRoutes[v]
      */
-    private List<List<List<String>>> vnfmRoutes;
+    private final int[][] managementRoutes;
+
     /**
      * Number of the used VNFMs instances
      */
     private int vnfmInstances;
 
-    public Solution(int cost, List<List<String>> vnfPlacement, List<String> vnfmPlacement, List<List<List<String>>> vnfmRoutes, int vnfmInstances) {
+    public Solution(Config cfg, int cost, int[] hosts, int[] managers, int[][] routes, int[][] managementRoutes, int vnfmInstances) {
+        this.cfg = cfg;
         this.cost = cost;
-        this.vnfPlacement = vnfPlacement;
-        this.vnfmPlacement = vnfmPlacement;
-        this.vnfmRoutes = vnfmRoutes;
+        this.hosts = hosts;
+        this.managers = managers;
+        this.routes = routes;
+        this.managementRoutes = managementRoutes;
         this.vnfmInstances = vnfmInstances;
     }
 
@@ -48,15 +82,91 @@ public class Solution {
         return cost;
     }
 
+    public int getVnfmInstances() {
+        return vnfmInstances;
+    }
+
+    /**
+     * @param h chain index
+     * @return that the chain is accepted
+     */
+    public boolean isAccepted(int h) {
+        return this.managers[h] != -1;
+    }
+
+    public int[] getHosts() {
+        return hosts;
+    }
+
+    public int[] getManagers() {
+        return managers;
+    }
+
+    public int[][] getRoutes() {
+        return routes;
+    }
+
+    public int[][] getManagementRoutes() {
+        return managementRoutes;
+    }
+
+    /**
+     * @return placement array (physical node names) for each chain and empty array for the rejected chains
+     */
     public List<List<String>> getVnfPlacement() {
+        List<List<String>> vnfPlacement = new ArrayList<>();
+
+        int v = 0;
+        for (int h = 0; h < this.cfg.getChains().size(); h++) {
+            Chain chain = this.cfg.getChains().get(h);
+            List<String> placement = new ArrayList<>();
+            for (int k = 0; k < chain.nodes() && this.isAccepted(h); k++) {
+                placement.add(this.cfg.getNodes().get(this.hosts[v + k]).getName());
+            }
+            vnfPlacement.add(placement);
+            v += chain.nodes();
+        }
+
         return vnfPlacement;
     }
 
+    /**
+     * @return name of chain's manager physical server and `-` for the rejected chains
+     */
     public List<String> getVnfmPlacement() {
+        List<String> vnfmPlacement = new ArrayList<>();
+        for (int manager : this.managers) {
+            vnfmPlacement.add(manager != -1 ? this.cfg.getNodes().get(manager).getName() : "-");
+        }
         return vnfmPlacement;
     }
 
+    /**
+     * @return route (physical node names) from manageable vnfs to their manager for each chain
+     * and empty array for the rejected chains
+     */
     public List<List<List<String>>> getVnfmRoutes() {
+        List<List<List<String>>> vnfmRoutes = new ArrayList<>();
+
+        int v = 0;
+        for (Chain chain : this.cfg.getChains()) {
+            List<List<String>> chainRoutes = new ArrayList<>();
+            for (int k = 0; k < chain.nodes(); k++) {
+                if (this.managementRoutes[v + k] == null) {
+                    continue;
+                }
+
+                List<String> route = new ArrayList<>();
+                route.add(this.cfg.getNodes().get(this.hosts[v + k]).getName());
+                for (int e : this.managementRoutes[v + k]) {
+                    route.add(this.cfg.getNodes().get(this.cfg.getLinks().get(e).getDestination()).getName());
+                }
+                chainRoutes.add(route);
+            }
+            vnfmRoutes.add(chainRoutes);
+            v += chain.nodes();
+        }
+
         return vnfmRoutes;
     }
 